@@ -0,0 +1,134 @@
+package com.bnorm.infinite.benchmarks;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.bnorm.infinite.StateMachineStructure;
+import com.bnorm.infinite.StateMachineStructures;
+import com.bnorm.infinite.Transition;
+import com.bnorm.infinite.async.AsyncStateMachine;
+import com.bnorm.infinite.async.AsyncStateMachineBase;
+import com.bnorm.infinite.async.RingBufferAsyncStateMachine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of the linked queue asynchronous state machine with the ring buffer asynchronous state
+ * machine.  Each invocation queues a batch of events and waits for the last one to be processed.  Benchmarks are run
+ * with 1, 2, and 4 producer threads, and other numbers of producers can be measured with the {@code -t} JMH option.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncStateMachineBenchmark {
+
+    /** The number of events queued by each invocation. */
+    private static final int BATCH = 1_000;
+
+    /** The asynchronous state machine implementation. */
+    @Param({"linked", "ring"})
+    public String implementation;
+
+    /** The asynchronous state machine. */
+    private AsyncStateMachine<String, String, Void> machine;
+
+    /** The thread running the asynchronous state machine. */
+    private Thread thread;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StateMachineStructure<String, String, Void> structure = StateMachineStructures.create();
+        structure.getState("State");
+        structure.addTransition("event", structure.getTransitionFactory().create("State", "State"));
+        structure = structure.compile();
+        if ("ring".equals(implementation)) {
+            machine = new RingBufferAsyncStateMachine<>(structure, "State", null);
+        } else {
+            machine = new AsyncStateMachineBase<>(structure, "State", null);
+        }
+        thread = new Thread(machine, "benchmark-" + implementation);
+        thread.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        machine.stop();
+        thread.join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Optional<Transition<String, String, Void>> submit() {
+        for (int i = 1; i < BATCH; i++) {
+            machine.submit("event");
+        }
+        return machine.submit("event").join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @Threads(4)
+    public Optional<Transition<String, String, Void>> submitContended() {
+        return submit();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Optional<Transition<String, String, Void>> publish() {
+        if (machine instanceof RingBufferAsyncStateMachine) {
+            final RingBufferAsyncStateMachine<String, String, Void> ring;
+            ring = (RingBufferAsyncStateMachine<String, String, Void>) machine;
+            for (int i = 1; i < BATCH; i++) {
+                ring.publish("event");
+            }
+        } else {
+            for (int i = 1; i < BATCH; i++) {
+                machine.submit("event");
+            }
+        }
+        return machine.fire("event");
+    }
+
+    @Benchmark
+    public Optional<Transition<String, String, Void>> fire() {
+        return machine.fire("event");
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Optional<Transition<String, String, Void>> fireTwoProducers() {
+        return machine.fire("event");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<Transition<String, String, Void>> fireContended() {
+        return machine.fire("event");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @Threads(2)
+    public Optional<Transition<String, String, Void>> submitTwoProducers() {
+        return submit();
+    }
+}
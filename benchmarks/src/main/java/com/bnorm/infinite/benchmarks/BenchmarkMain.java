@@ -0,0 +1,49 @@
+package com.bnorm.infinite.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the standard JMH command line options.  Unless another result format or file is specified,
+ * the results are written as JSON to {@value #DEFAULT_RESULT} so they can be published and compared between releases.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public final class BenchmarkMain {
+
+    /** The default result file. */
+    public static final String DEFAULT_RESULT = "jmh-result.json";
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args the JMH command line options.
+     * @throws CommandLineOptionException if the command line options are invalid.
+     * @throws RunnerException if the benchmarks fail.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        final CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        } else if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+
+        final ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(DEFAULT_RESULT);
+        }
+        new Runner(options.build()).run();
+    }
+}
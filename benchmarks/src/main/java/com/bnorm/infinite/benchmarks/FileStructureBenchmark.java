@@ -0,0 +1,92 @@
+package com.bnorm.infinite.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.bnorm.infinite.StateMachineStructure;
+import com.bnorm.infinite.file.FileStateMachineStructureFactory;
+import com.bnorm.infinite.file.StringStateMachineReaderBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing large state machine definition files.  Each generated state has a parent, entry and exit actions,
+ * and a few guarded transitions with actions, so every part of the file format is parsed.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileStructureBenchmark {
+
+    /** The number of states in the definition file. */
+    @Param({"100", "10000"})
+    public int states;
+
+    /** The number of transitions of each state. */
+    @Param({"4"})
+    public int transitions;
+
+    /** The generated definition file. */
+    private Path path;
+
+    /** The factory which parses the definition file. */
+    private FileStateMachineStructureFactory<String, String, Void> factory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        path = Files.createTempFile("infinite-benchmark", ".txt");
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("# generated state machine definition\n");
+            for (int i = 0; i < states; i++) {
+                writer.write("state " + i);
+                if (i > 0) {
+                    writer.write(" : state " + ((i - 1) / 2));
+                }
+                writer.write(" / entry " + i + " / exit " + i + "\n");
+                for (int j = 0; j < transitions; j++) {
+                    writer.write("    event " + j + " -> state " + ((i + j + 1) % states) + " [guard " + j + "]" +
+                                         " / action " + j + "  # transition " + j + "\n");
+                }
+            }
+        }
+        factory = new FileStateMachineStructureFactory<>(
+                path, new StringStateMachineReaderBase<>(Function.identity(), Function.identity()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public StateMachineStructure<String, String, Void> parse() {
+        return factory.create();
+    }
+
+    @Benchmark
+    public StateMachineStructure<String, String, Void> parseAndCompile() {
+        return factory.create().compile();
+    }
+}
@@ -0,0 +1,111 @@
+package com.bnorm.infinite.benchmarks;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.bnorm.infinite.StateMachine;
+import com.bnorm.infinite.StateMachineStructure;
+import com.bnorm.infinite.StateMachineStructures;
+import com.bnorm.infinite.StateMachines;
+import com.bnorm.infinite.Transition;
+import com.bnorm.infinite.builders.StateBuilder;
+import com.bnorm.infinite.builders.StateMachineBuilder;
+import com.bnorm.infinite.builders.StateMachineBuilderFactoryBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures firing events on a synchronous state machine.  The two leaf states toggle between each other and are nested
+ * below a chain of parent states, so deeper hierarchies have more ancestors to walk when looking up transitions and
+ * finding the common ancestor.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateMachineBenchmark {
+
+    /** The number of parent states above the leaf states. */
+    @Param({"0", "8"})
+    public int depth;
+
+    /** If the transitions are guarded. */
+    @Param({"false", "true"})
+    public boolean guarded;
+
+    /** The number of transition listeners. */
+    @Param({"0", "1", "4"})
+    public int listeners;
+
+    /** If the structure is compiled. */
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    /** The state machine. */
+    private StateMachine<String, String, Blackhole> machine;
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole blackhole) {
+        StateMachineStructure<String, String, Blackhole> structure = StateMachineStructures.create();
+        StateMachineBuilder<String, String, Blackhole> builder;
+        builder = new StateMachineBuilderFactoryBase<String, String, Blackhole>().create(structure);
+
+        String parent = null;
+        for (int i = 0; i < depth; i++) {
+            StateBuilder<String, String, Blackhole> state = builder.configure("Parent" + i);
+            if (parent != null) {
+                state.childOf(parent);
+            }
+            parent = "Parent" + i;
+        }
+        StateBuilder<String, String, Blackhole> a = builder.configure("A");
+        StateBuilder<String, String, Blackhole> b = builder.configure("B");
+        if (parent != null) {
+            a.childOf(parent);
+            b.childOf(parent);
+        }
+        if (guarded) {
+            a.handle("toggle", "B", context -> context != null);
+            b.handle("toggle", "A", context -> context != null);
+        } else {
+            a.handle("toggle", "B");
+            b.handle("toggle", "A");
+        }
+
+        machine = StateMachines.create(compiled ? structure.compile() : structure, "A", blackhole);
+        for (int i = 0; i < listeners; i++) {
+            machine.addTransitionListener((stage, event, transition, context) -> context.consume(transition));
+        }
+    }
+
+    @Benchmark
+    public Optional<Transition<String, String, Blackhole>> fire() {
+        return machine.fire("toggle");
+    }
+
+    @Benchmark
+    public boolean fireFast() {
+        return machine.fireFast("toggle");
+    }
+
+    @Benchmark
+    public Optional<Transition<String, String, Blackhole>> fireIgnored() {
+        return machine.fire("ignored");
+    }
+}
@@ -0,0 +1,97 @@
+package com.bnorm.infinite.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.bnorm.infinite.StateMachine;
+import com.bnorm.infinite.StateMachineBase;
+import com.bnorm.infinite.StateMachineStructure;
+import com.bnorm.infinite.StateMachineStructures;
+import com.bnorm.infinite.StateMachines;
+import com.bnorm.infinite.builders.StateMachineBuilder;
+import com.bnorm.infinite.builders.StateMachineBuilderFactoryBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares firing events with trace logging compiled out against firing events with the trace logging switch on but
+ * the logger disabled.  The traced benchmarks are run in a fork with the {@value StateMachineBase#TRACE_PROPERTY}
+ * system property set.  The benchmarks have no logging backend, so the traced benchmarks only pay for the logger
+ * checks and the evaluation of the logging arguments, which is the least a logging backend would cost.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TraceBenchmark {
+
+    /** The JVM argument which enables trace logging. */
+    private static final String TRACE = "-D" + StateMachineBase.TRACE_PROPERTY + "=true";
+
+    /** The number of parent states above the leaf states. */
+    @Param({"0", "8"})
+    public int depth;
+
+    /** The state machine. */
+    private StateMachine<String, String, Void> machine;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StateMachineStructure<String, String, Void> structure = StateMachineStructures.create();
+        StateMachineBuilder<String, String, Void> builder;
+        builder = new StateMachineBuilderFactoryBase<String, String, Void>().create(structure);
+
+        String parent = null;
+        for (int i = 0; i < depth; i++) {
+            if (parent != null) {
+                builder.configure("Parent" + i).childOf(parent);
+            }
+            parent = "Parent" + i;
+        }
+        builder.configure("A").handle("toggle", "B");
+        builder.configure("B").handle("toggle", "A");
+        if (parent != null) {
+            builder.configure("A").childOf(parent);
+            builder.configure("B").childOf(parent);
+        }
+
+        machine = StateMachines.create(structure.compile(), "A", null);
+    }
+
+    @Benchmark
+    @Fork(1)
+    public boolean fireFast() {
+        return machine.fireFast("toggle");
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = TRACE)
+    public boolean fireFastTraced() {
+        return machine.fireFast("toggle");
+    }
+
+    @Benchmark
+    @Fork(1)
+    public boolean fireIgnored() {
+        return machine.fireFast("ignored");
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = TRACE)
+    public boolean fireIgnoredTraced() {
+        return machine.fireFast("ignored");
+    }
+}
@@ -0,0 +1,304 @@
+package com.bnorm.infinite;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An immutable internal state used by compiled state machine structures.  The depth of the state and the chain of
+ * ancestors are computed when the state is created, so hierarchy checks and the entrance and exit paths of a transition
+ * are found by walking flat arrays instead of recursively searching the parent and child states.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @param <C> the class type of the context.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class CompiledInternalState<S, E, C> implements InternalState<S, E, C> {
+
+    /** The wrapped state. */
+    protected final S state;
+
+    /** The optional parent state. */
+    protected final Optional<InternalState<S, E, C>> parent;
+
+    /** The internal state wrapped in an optional. */
+    protected final Optional<InternalState<S, E, C>> self;
+
+    /** The children of the state. */
+    protected final Set<InternalState<S, E, C>> children;
+
+    /** The entrance actions of the state. */
+    protected final List<Action<? super S, ? super E, ? super C>> entranceActions;
+
+    /** The exit actions of the state. */
+    protected final List<Action<? super S, ? super E, ? super C>> exitActions;
+
+    /** The optional timeout of the state. */
+    protected final Optional<StateTimeout<S, E, C>> timeout;
+
+    /** If the state or any of its parents has a timeout. */
+    protected final boolean timed;
+
+    /** The number of parents the state has. */
+    protected final int depth;
+
+    /** The ancestors of the state indexed by depth, starting with the root state and ending with this state. */
+    protected final CompiledInternalState<S, E, C>[] ancestors;
+
+    /** All the compiled internal states of the structure, used to find the ancestors of other states. */
+    protected final Map<S, CompiledInternalState<S, E, C>> states;
+
+    /**
+     * Constructs a new compiled internal state from the specified internal state and compiled parent.  The compiled
+     * state is also added as a child of the compiled parent.
+     *
+     * @param internalState the internal state to compile.
+     * @param parent the compiled parent state or {@code null} if the state has no parent.
+     * @param states all the compiled internal states of the structure.
+     */
+    protected CompiledInternalState(InternalState<S, E, C> internalState, CompiledInternalState<S, E, C> parent,
+                                    Map<S, CompiledInternalState<S, E, C>> states) {
+        this.state = internalState.getState();
+        this.parent = Optional.ofNullable(parent);
+        this.self = Optional.of(this);
+        this.children = new LinkedHashSet<>();
+        this.entranceActions = Collections.unmodifiableList(new ArrayList<>(internalState.getEntranceActions()));
+        this.exitActions = Collections.unmodifiableList(new ArrayList<>(internalState.getExitActions()));
+        this.timeout = internalState.getTimeout();
+        this.timed = timeout.isPresent() || (parent != null && parent.timed);
+        this.depth = parent != null ? parent.depth + 1 : 0;
+
+        @SuppressWarnings("unchecked")
+        CompiledInternalState<S, E, C>[] ancestors = new CompiledInternalState[depth + 1];
+        if (parent != null) {
+            System.arraycopy(parent.ancestors, 0, ancestors, 0, depth);
+            parent.children.add(this);
+        }
+        ancestors[depth] = this;
+        this.ancestors = ancestors;
+        this.states = states;
+    }
+
+    /**
+     * Compiles the specified internal states, and any of their parents, into compiled internal states.
+     *
+     * @param internalStates the internal states to compile.
+     * @param states the map to which the compiled internal states are added.
+     * @param <S> the class type of the states.
+     * @param <E> the class type of the events.
+     * @param <C> the class type of the context.
+     */
+    public static <S, E, C> void compile(Iterable<InternalState<S, E, C>> internalStates,
+                                         Map<S, CompiledInternalState<S, E, C>> states) {
+        for (InternalState<S, E, C> internalState : internalStates) {
+            compile(internalState, states);
+        }
+    }
+
+    /**
+     * Compiles the specified internal state, after compiling any parent states, and adds it to the specified map.
+     *
+     * @param internalState the internal state to compile.
+     * @param states the map to which the compiled internal states are added.
+     * @param <S> the class type of the states.
+     * @param <E> the class type of the events.
+     * @param <C> the class type of the context.
+     * @return the compiled internal state.
+     */
+    private static <S, E, C> CompiledInternalState<S, E, C> compile(InternalState<S, E, C> internalState,
+                                                                    Map<S, CompiledInternalState<S, E, C>> states) {
+        CompiledInternalState<S, E, C> compiled = states.get(internalState.getState());
+        if (compiled == null) {
+            final Optional<InternalState<S, E, C>> parent = internalState.getParentState();
+            final CompiledInternalState<S, E, C> compiledParent = parent.isPresent() ? compile(parent.get(), states)
+                                                                                     : null;
+            compiled = new CompiledInternalState<>(internalState, compiledParent, states);
+            states.put(compiled.getState(), compiled);
+        }
+        return compiled;
+    }
+
+    @Override
+    public S getState() {
+        return state;
+    }
+
+    @Override
+    public void setParentState(InternalState<S, E, C> parent) {
+        throw new StateMachineException("The parent of a compiled internal state cannot be changed");
+    }
+
+    @Override
+    public Optional<InternalState<S, E, C>> getParentState() {
+        return parent;
+    }
+
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public boolean isParent(S state) {
+        for (int i = 0; i < depth; i++) {
+            if (Objects.equals(ancestors[i].state, state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Set<InternalState<S, E, C>> getChildrenStates() {
+        return Collections.unmodifiableSet(children);
+    }
+
+    @Override
+    public void addChild(InternalState<S, E, C> state) {
+        throw new StateMachineException("The children of a compiled internal state cannot be changed");
+    }
+
+    @Override
+    public boolean isChild(S state) {
+        final CompiledInternalState<S, E, C> child = states.get(state);
+        return child != null && child.depth > depth && child.ancestors[depth] == this;
+    }
+
+    @Override
+    public Set<Action<? super S, ? super E, ? super C>> getEntranceActions() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(entranceActions));
+    }
+
+    @Override
+    public void addEntranceAction(Action<? super S, ? super E, ? super C> action) {
+        throw new StateMachineException("The entrance actions of a compiled internal state cannot be changed");
+    }
+
+    @Override
+    public void enter(E event, Transition<? extends S, ? extends E, ? extends C> transition, C context) {
+        if (transition.isReentrant()) {
+            performEntranceActions(event, transition, context);
+        } else {
+            for (int i = getCommonDepth(transition.getSource()); i <= depth; i++) {
+                ancestors[i].performEntranceActions(event, transition, context);
+            }
+        }
+    }
+
+    @Override
+    public Set<Action<? super S, ? super E, ? super C>> getExitActions() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(exitActions));
+    }
+
+    @Override
+    public void addExitAction(Action<? super S, ? super E, ? super C> action) {
+        throw new StateMachineException("The exit actions of a compiled internal state cannot be changed");
+    }
+
+    @Override
+    public Optional<StateTimeout<S, E, C>> getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public boolean isTimed() {
+        return timed;
+    }
+
+    @Override
+    public void setTimeout(StateTimeout<S, E, C> timeout) {
+        throw new StateMachineException("The timeout of a compiled internal state cannot be changed");
+    }
+
+    @Override
+    public void exit(E event, Transition<? extends S, ? extends E, ? extends C> transition, C context) {
+        if (transition.isReentrant()) {
+            performExitActions(event, transition, context);
+        } else {
+            for (int i = depth, common = getCommonDepth(transition.getDestination()); i >= common; i--) {
+                ancestors[i].performExitActions(event, transition, context);
+            }
+        }
+    }
+
+    @Override
+    public Optional<InternalState<S, E, C>> getCommonAncestor(InternalState<S, E, C> state) {
+        if (Objects.equals(this.state, state.getState())) {
+            return parent;
+        }
+        final CompiledInternalState<S, E, C> other = states.get(state.getState());
+        if (other == null) {
+            return InternalState.getCommonAncestor(this, state);
+        }
+        final int common = getCommonDepth(other);
+        return common > 0 ? ancestors[common - 1].self : Optional.empty();
+    }
+
+    /**
+     * Returns the number of ancestors, including itself, the internal state shares with the specified state.  These are
+     * the states which are neither exited nor entered when transitioning between the two states.
+     *
+     * @param state the other state.
+     * @return the number of shared ancestors.
+     */
+    protected int getCommonDepth(S state) {
+        final CompiledInternalState<S, E, C> other = states.get(state);
+        return other != null ? getCommonDepth(other) : 0;
+    }
+
+    /**
+     * Returns the number of ancestors, including itself, the internal state shares with the specified compiled internal
+     * state.
+     *
+     * @param other the other compiled internal state.
+     * @return the number of shared ancestors.
+     */
+    protected int getCommonDepth(CompiledInternalState<S, E, C> other) {
+        final int max = Math.min(depth, other.depth);
+        int common = 0;
+        while (common <= max && ancestors[common] == other.ancestors[common]) {
+            common++;
+        }
+        return common;
+    }
+
+    /**
+     * Performs the entrance actions of only this internal state.
+     *
+     * @param event the event that caused the transition.
+     * @param transition the resulting state transition.
+     * @param context the state machine context.
+     */
+    protected void performEntranceActions(E event, Transition<? extends S, ? extends E, ? extends C> transition,
+                                          C context) {
+        for (int i = 0; i < entranceActions.size(); i++) {
+            entranceActions.get(i).perform(state, event, transition, context);
+        }
+    }
+
+    /**
+     * Performs the exit actions of only this internal state.
+     *
+     * @param event the event that caused the transition.
+     * @param transition the resulting state transition.
+     * @param context the state machine context.
+     */
+    protected void performExitActions(E event, Transition<? extends S, ? extends E, ? extends C> transition,
+                                      C context) {
+        for (int i = 0; i < exitActions.size(); i++) {
+            exitActions.get(i).perform(state, event, transition, context);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledInternalState[" + state + "]";
+    }
+}
@@ -0,0 +1,188 @@
+package com.bnorm.infinite;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An immutable state machine structure where the possible transitions of every state and event pair have been computed
+ * ahead of time.  The possible transitions already include the transitions handled by parent states so finding the
+ * transitions for an event is a single lookup.  The internal states are also compiled so the ancestors of each state,
+ * which are needed to find the entrance and exit actions of a transition, are known ahead of time.
+ *
+ * <p>A compiled structure is usually created by {@link StateMachineStructure#compile()} once the structure has been
+ * fully configured.  If the states or events are enum constants, the compiled structure is backed by {@link EnumMap}s.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @param <C> the class type of the context.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class CompiledStateMachineStructure<S, E, C> implements StateMachineStructure<S, E, C> {
+
+    /** The state machine internal state factory. */
+    protected final InternalStateFactory<S, E, C> internalStateFactory;
+
+    /** The state transition factory. */
+    protected final TransitionFactory<S, E, C> transitionFactory;
+
+    /** The state to internal state map. */
+    protected final Map<S, InternalState<S, E, C>> states;
+
+    /** The event to transition map. */
+    protected final Map<E, Set<Transition<S, E, C>>> transitions;
+
+    /** The state to event to possible transitions map. */
+    protected final Map<S, Map<E, List<List<Transition<S, E, C>>>>> table;
+
+    /**
+     * Constructs a new compiled state machine structure from the specified factories, internal states, and transitions.
+     * The specified maps are copied and not modified.
+     *
+     * @param internalStateFactory the factory used to create internal states.
+     * @param transitionFactory the factory used to create transitions.
+     * @param states the state to internal state map.
+     * @param transitions the event to transition map.
+     */
+    public CompiledStateMachineStructure(InternalStateFactory<S, E, C> internalStateFactory,
+                                         TransitionFactory<S, E, C> transitionFactory,
+                                         Map<S, InternalState<S, E, C>> states,
+                                         Map<E, Set<Transition<S, E, C>>> transitions) {
+        this.internalStateFactory = internalStateFactory;
+        this.transitionFactory = transitionFactory;
+
+        final Map<S, InternalState<S, E, C>> statesCopy = new HashMap<>(states);
+        final Map<E, Set<Transition<S, E, C>>> transitionsCopy = createMap(transitions.keySet());
+        transitions.forEach((event, eventTransitions) -> {
+            transitionsCopy.put(event, Collections.unmodifiableSet(new LinkedHashSet<>(eventTransitions)));
+            // Transitions can be added for states which have never been configured
+            eventTransitions.forEach(t -> statesCopy.computeIfAbsent(t.getSource(), internalStateFactory::create));
+        });
+        final Map<S, CompiledInternalState<S, E, C>> compiled = createMap(statesCopy.keySet());
+        CompiledInternalState.compile(statesCopy.values(), compiled);
+        this.states = Collections.unmodifiableMap(compiled);
+        this.transitions = transitionsCopy;
+        this.table = compileTable(this.states, transitionsCopy);
+    }
+
+    @Override
+    public InternalStateFactory<S, E, C> getInternalStateFactory() {
+        return internalStateFactory;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Since the compiled structure cannot be modified, an internal state which was not part of the structure when it
+     * was compiled is created each time it is requested and is never saved.
+     */
+    @Override
+    public InternalState<S, E, C> getState(S state) {
+        final InternalState<S, E, C> internalState = states.get(state);
+        return internalState != null ? internalState : internalStateFactory.create(state);
+    }
+
+    @Override
+    public TransitionFactory<S, E, C> getTransitionFactory() {
+        return transitionFactory;
+    }
+
+    @Override
+    public Set<Transition<S, E, C>> getTransitions(E event) {
+        final Set<Transition<S, E, C>> eventTransitions = transitions.get(event);
+        return eventTransitions != null ? eventTransitions : Collections.emptySet();
+    }
+
+    @Override
+    public List<List<Transition<S, E, C>>> getTransitions(S state, E event) {
+        final Map<E, List<List<Transition<S, E, C>>>> stateTable = table.get(state);
+        if (stateTable == null) {
+            return Collections.emptyList();
+        }
+        final List<List<Transition<S, E, C>>> possible = stateTable.get(event);
+        return possible != null ? possible : Collections.emptyList();
+    }
+
+    @Override
+    public void addTransition(E event, Transition<S, E, C> transition) {
+        throw new StateMachineException("Transitions cannot be added to a compiled state machine structure");
+    }
+
+    @Override
+    public StateMachineStructure<S, E, C> compile() {
+        return this;
+    }
+
+    /**
+     * Builds the state to event to possible transitions table for the specified internal states and transitions.  Each
+     * entry follows the contract of {@link StateMachineStructure#getTransitions(Object, Object)}.
+     *
+     * @param states the state to internal state map.
+     * @param transitions the event to transition map.
+     * @param <S> the class type of the states.
+     * @param <E> the class type of the events.
+     * @param <C> the class type of the context.
+     * @return the possible transitions table.
+     */
+    private static <S, E, C> Map<S, Map<E, List<List<Transition<S, E, C>>>>> compileTable(
+            Map<S, InternalState<S, E, C>> states, Map<E, Set<Transition<S, E, C>>> transitions) {
+        final Map<S, Map<E, List<List<Transition<S, E, C>>>>> table = createMap(states.keySet());
+        transitions.forEach((event, eventTransitions) -> {
+            final Map<S, List<Transition<S, E, C>>> bySource = new LinkedHashMap<>();
+            eventTransitions.forEach(t -> bySource.computeIfAbsent(t.getSource(), s -> new ArrayList<>()).add(t));
+            bySource.replaceAll((source, handled) -> Collections.unmodifiableList(handled));
+
+            for (InternalState<S, E, C> internalState : states.values()) {
+                final List<List<Transition<S, E, C>>> possible = new ArrayList<>();
+                Optional<InternalState<S, E, C>> optional = Optional.of(internalState);
+                while (optional.isPresent()) {
+                    final List<Transition<S, E, C>> handled = bySource.get(optional.get().getState());
+                    if (handled != null) {
+                        possible.add(handled);
+                    }
+                    optional = optional.get().getParentState();
+                }
+                if (!possible.isEmpty()) {
+                    table.computeIfAbsent(internalState.getState(), s -> createMap(transitions.keySet()))
+                         .put(event, Collections.unmodifiableList(possible));
+                }
+            }
+        });
+        return table;
+    }
+
+    /**
+     * Creates a new map for the specified keys.  If all the keys are constants of the same enum, an {@link EnumMap} is
+     * created, otherwise a {@link HashMap} is created.
+     *
+     * @param keys the keys that will be put in the map.
+     * @param <K> the class type of the keys.
+     * @param <V> the class type of the values.
+     * @return a new map.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Map<K, V> createMap(Collection<K> keys) {
+        Class<?> enumType = null;
+        for (K key : keys) {
+            if (!(key instanceof Enum)) {
+                return new HashMap<>();
+            }
+            final Class<?> keyType = ((Enum<?>) key).getDeclaringClass();
+            if (enumType == null) {
+                enumType = keyType;
+            } else if (enumType != keyType) {
+                return new HashMap<>();
+            }
+        }
+        return enumType != null ? new EnumMap(enumType) : new HashMap<>();
+    }
+}
@@ -0,0 +1,224 @@
+package com.bnorm.infinite;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * A state machine structure for enum states and events.  The internal states and transitions are stored in arrays
+ * indexed by the ordinal of the state or event, so looking them up does not require hashing or acquiring a monitor.
+ * The internal state of every enum constant is created when the structure is created.  The transitions of each event
+ * are also indexed by the ordinal of their source state, so finding the possible transitions of a state only walks the
+ * parent chain of the state.  The possible transitions of each state and event are cached once found, until a
+ * transition of the event is added, so the parent states must be configured before events are fired.
+ *
+ * <p>Enum structures do not support {@code null} events.  Like a compiled structure, an internal state for a {@code
+ * null} state is created each time it is requested and is never saved.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @param <C> the class type of the context.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class EnumStateMachineStructure<S extends Enum<S>, E extends Enum<E>, C>
+        implements StateMachineStructure<S, E, C> {
+
+    /** The state machine internal state factory. */
+    protected final InternalStateFactory<S, E, C> internalStateFactory;
+
+    /** The state transition factory. */
+    protected final TransitionFactory<S, E, C> transitionFactory;
+
+    /** The class type of the states. */
+    protected final Class<S> stateType;
+
+    /** The class type of the events. */
+    protected final Class<E> eventType;
+
+    /** The internal states indexed by state ordinal. */
+    protected final InternalState<S, E, C>[] states;
+
+    /** The transitions indexed by event ordinal. */
+    protected final Set<Transition<S, E, C>>[] transitions;
+
+    /**
+     * The transitions indexed by event ordinal and then by source state ordinal, with transitions from a {@code null}
+     * source state in the last index.  Each list is immutable and replaced when a transition is added.
+     */
+    protected final List<Transition<S, E, C>>[][] sourceTransitions;
+
+    /**
+     * The cached possible transitions indexed by event ordinal and then by state ordinal, with the possible transitions
+     * of a {@code null} state in the last index.  The cache of an event is replaced when a transition is added.
+     */
+    protected final List<List<Transition<S, E, C>>>[][] possibleTransitions;
+
+    /**
+     * Constructs a new enum state machine structure from the specified internal state factory, transition factory,
+     * and the class types of the states and events.
+     *
+     * @param internalStateFactory the factory used to create internal states.
+     * @param transitionFactory the factory used to create transitions.
+     * @param stateType the class type of the states.
+     * @param eventType the class type of the events.
+     */
+    protected EnumStateMachineStructure(InternalStateFactory<S, E, C> internalStateFactory,
+                                        TransitionFactory<S, E, C> transitionFactory, Class<S> stateType,
+                                        Class<E> eventType) {
+        this.internalStateFactory = internalStateFactory;
+        this.transitionFactory = transitionFactory;
+        this.stateType = stateType;
+        this.eventType = eventType;
+
+        final S[] stateConstants = stateType.getEnumConstants();
+        this.states = newArray(InternalState.class, stateConstants.length);
+        for (S state : stateConstants) {
+            states[state.ordinal()] = internalStateFactory.create(state);
+        }
+
+        final int events = eventType.getEnumConstants().length;
+        this.transitions = newArray(Set.class, events);
+        this.sourceTransitions = newArray(List[].class, events);
+        this.possibleTransitions = newArray(List[].class, events);
+        for (int i = 0; i < events; i++) {
+            transitions[i] = new CopyOnWriteArraySet<>();
+            sourceTransitions[i] = newArray(List.class, stateConstants.length + 1);
+            Arrays.fill(sourceTransitions[i], Collections.emptyList());
+            possibleTransitions[i] = newArray(List.class, stateConstants.length + 1);
+        }
+    }
+
+    @Override
+    public InternalStateFactory<S, E, C> getInternalStateFactory() {
+        return internalStateFactory;
+    }
+
+    @Override
+    public InternalState<S, E, C> getState(S state) {
+        return state != null ? states[state.ordinal()] : internalStateFactory.create(null);
+    }
+
+    @Override
+    public TransitionFactory<S, E, C> getTransitionFactory() {
+        return transitionFactory;
+    }
+
+    @Override
+    public Set<Transition<S, E, C>> getTransitions(E event) {
+        return event != null ? Collections.unmodifiableSet(transitions[event.ordinal()]) : Collections.emptySet();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The transitions of the event are looked up by the ordinal of each state in the parent chain of the specified
+     * state, without hashing or filtering all the transitions of the event.  The result is cached, so looking up the
+     * same state and event again does not walk the parent chain or allocate anything.
+     */
+    @Override
+    public List<List<Transition<S, E, C>>> getTransitions(S state, E event) {
+        if (event == null) {
+            return Collections.emptyList();
+        }
+        // Read the cache before the transitions so a result computed while a transition is added is discarded.
+        final List<List<Transition<S, E, C>>>[] cache = possibleTransitions[event.ordinal()];
+        final int index = sourceIndex(state);
+        List<List<Transition<S, E, C>>> possible = cache[index];
+        if (possible == null) {
+            possible = findTransitions(state, sourceTransitions[event.ordinal()]);
+            cache[index] = possible;
+        }
+        return possible;
+    }
+
+    /**
+     * Finds the possible transitions of the specified state by walking its parent chain.
+     *
+     * @param state the state.
+     * @param bySource the transitions of an event indexed by source state ordinal.
+     * @return the possible transitions.
+     */
+    private List<List<Transition<S, E, C>>> findTransitions(S state, List<Transition<S, E, C>>[] bySource) {
+        final List<List<Transition<S, E, C>>> possible = new ArrayList<>();
+        Optional<InternalState<S, E, C>> optional = Optional.of(getState(state));
+        while (optional.isPresent()) {
+            final List<Transition<S, E, C>> handled = bySource[sourceIndex(optional.get().getState())];
+            if (!handled.isEmpty()) {
+                possible.add(handled);
+            }
+            optional = optional.get().getParentState();
+        }
+        switch (possible.size()) {
+            case 0:
+                return Collections.emptyList();
+            case 1:
+                return Collections.singletonList(possible.get(0));
+            default:
+                return Collections.unmodifiableList(possible);
+        }
+    }
+
+    @Override
+    public synchronized void addTransition(E event, Transition<S, E, C> transition) {
+        if (event == null) {
+            throw new StateMachineException("Enum state machine structures do not support null events");
+        }
+        if (transitions[event.ordinal()].add(transition)) {
+            final List<Transition<S, E, C>>[] bySource = sourceTransitions[event.ordinal()];
+            final int index = sourceIndex(transition.getSource());
+            final List<Transition<S, E, C>> handled = new ArrayList<>(bySource[index]);
+            handled.add(transition);
+            bySource[index] = Collections.unmodifiableList(handled);
+            possibleTransitions[event.ordinal()] = newArray(List.class, states.length + 1);
+        }
+    }
+
+    @Override
+    public StateMachineStructure<S, E, C> compile() {
+        final Map<S, InternalState<S, E, C>> statesCopy = new HashMap<>();
+        for (InternalState<S, E, C> internalState : states) {
+            statesCopy.put(internalState.getState(), internalState);
+        }
+        final Map<E, Set<Transition<S, E, C>>> transitionsCopy = new HashMap<>();
+        for (E event : eventType.getEnumConstants()) {
+            final Set<Transition<S, E, C>> eventTransitions = transitions[event.ordinal()];
+            if (!eventTransitions.isEmpty()) {
+                transitionsCopy.put(event, new LinkedHashSet<>(eventTransitions));
+            }
+        }
+        return new CompiledStateMachineStructure<>(internalStateFactory, transitionFactory, statesCopy,
+                                                   transitionsCopy);
+    }
+
+    /**
+     * Returns the index of the specified source state in the transitions of an event.
+     *
+     * @param source the source state or {@code null}.
+     * @return the index of the source state.
+     */
+    private int sourceIndex(S source) {
+        return source != null ? source.ordinal() : states.length;
+    }
+
+    /**
+     * Creates a new array of the specified generic component type.
+     *
+     * @param componentType the raw class type of the components.
+     * @param length the length of the array.
+     * @param <T> the generic class type of the components.
+     * @return the new array.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T[] newArray(Class<?> componentType, int length) {
+        return (T[]) Array.newInstance(componentType, length);
+    }
+}
@@ -0,0 +1,55 @@
+package com.bnorm.infinite;
+
+/**
+ * A factory for creating state machine structures for enum states and events.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @param <C> the class type of the context.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class EnumStateMachineStructureFactory<S extends Enum<S>, E extends Enum<E>, C>
+        extends StateMachineStructureFactoryBase<S, E, C> implements StateMachineStructureFactory<S, E, C> {
+
+    /** The class type of the states. */
+    protected final Class<S> stateType;
+
+    /** The class type of the events. */
+    protected final Class<E> eventType;
+
+    /**
+     * Constructs a new enum state machine structure factory from the specified internal state factory, transition
+     * factory, and the class types of the states and events.
+     *
+     * @param internalStateFactory the factory used to create internal states.
+     * @param transitionFactory the factory used to create transitions.
+     * @param stateType the class type of the states.
+     * @param eventType the class type of the events.
+     */
+    public EnumStateMachineStructureFactory(InternalStateFactory<S, E, C> internalStateFactory,
+                                            TransitionFactory<S, E, C> transitionFactory, Class<S> stateType,
+                                            Class<E> eventType) {
+        super(internalStateFactory, transitionFactory);
+        this.stateType = stateType;
+        this.eventType = eventType;
+    }
+
+    /**
+     * Constructs a new enum state machine structure factory from the default internal state factory and transition
+     * factory and the class types of the states and events.
+     *
+     * @param stateType the class type of the states.
+     * @param eventType the class type of the events.
+     */
+    public EnumStateMachineStructureFactory(Class<S> stateType, Class<E> eventType) {
+        super();
+        this.stateType = stateType;
+        this.eventType = eventType;
+    }
+
+    @Override
+    public StateMachineStructure<S, E, C> create() {
+        return new EnumStateMachineStructure<>(internalStateFactory, transitionFactory, stateType, eventType);
+    }
+}
@@ -0,0 +1,74 @@
+package com.bnorm.infinite;
+
+/**
+ * A summary of firing a batch of events with {@link StateMachine#fireAll(Iterable)}.
+ *
+ * @param <S> the class type of the states.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class FireSummary<S> {
+
+    /** The number of events which caused a transition. */
+    protected final long taken;
+
+    /** The number of events which did not cause a transition. */
+    protected final long ignored;
+
+    /** The state of the state machine after all events were fired. */
+    protected final S state;
+
+    /**
+     * Constructs a new fire summary from the specified number of taken and ignored events and the resulting state.
+     *
+     * @param taken the number of events which caused a transition.
+     * @param ignored the number of events which did not cause a transition.
+     * @param state the state of the state machine after all events were fired.
+     */
+    public FireSummary(long taken, long ignored, S state) {
+        this.taken = taken;
+        this.ignored = ignored;
+        this.state = state;
+    }
+
+    /**
+     * Returns the number of events which caused a transition.
+     *
+     * @return the number of taken events.
+     */
+    public long getTaken() {
+        return taken;
+    }
+
+    /**
+     * Returns the number of events which did not cause a transition.
+     *
+     * @return the number of ignored events.
+     */
+    public long getIgnored() {
+        return ignored;
+    }
+
+    /**
+     * Returns the total number of events fired.
+     *
+     * @return the number of fired events.
+     */
+    public long getFired() {
+        return taken + ignored;
+    }
+
+    /**
+     * Returns the state of the state machine after all events were fired.
+     *
+     * @return the resulting state.
+     */
+    public S getState() {
+        return state;
+    }
+
+    @Override
+    public String toString() {
+        return "FireSummary{taken=" + taken + ", ignored=" + ignored + ", state=" + state + "}";
+    }
+}
@@ -0,0 +1,79 @@
+package com.bnorm.infinite;
+
+import java.util.Map;
+
+/**
+ * A summary of firing events for the instances of a {@link StateMachineFleet}.
+ *
+ * @param <S> the class type of the states.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class FleetSummary<S> {
+
+    /** The number of events which caused a transition. */
+    protected final long taken;
+
+    /** The number of events which did not cause a transition. */
+    protected final long ignored;
+
+    /** The number of instances in each state after the events were fired. */
+    protected final Map<S, Long> counts;
+
+    /**
+     * Constructs a new fleet summary from the specified number of taken and ignored events and the number of instances
+     * in each state.
+     *
+     * @param taken the number of events which caused a transition.
+     * @param ignored the number of events which did not cause a transition.
+     * @param counts the number of instances in each state after the events were fired.
+     */
+    public FleetSummary(long taken, long ignored, Map<S, Long> counts) {
+        this.taken = taken;
+        this.ignored = ignored;
+        this.counts = counts;
+    }
+
+    /**
+     * Returns the number of events which caused a transition.
+     *
+     * @return the number of taken events.
+     */
+    public long getTaken() {
+        return taken;
+    }
+
+    /**
+     * Returns the number of events which did not cause a transition.
+     *
+     * @return the number of ignored events.
+     */
+    public long getIgnored() {
+        return ignored;
+    }
+
+    /**
+     * Returns the number of instances in each state after the events were fired.
+     *
+     * @return the state counts.
+     */
+    public Map<S, Long> getCounts() {
+        return counts;
+    }
+
+    /**
+     * Returns the number of instances in the specified state after the events were fired.
+     *
+     * @param state the state.
+     * @return the number of instances in the state.
+     */
+    public long getCount(S state) {
+        final Long count = counts.get(state);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "FleetSummary{taken=" + taken + ", ignored=" + ignored + ", counts=" + counts + "}";
+    }
+}
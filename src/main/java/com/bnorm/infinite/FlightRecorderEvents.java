@@ -0,0 +1,110 @@
+package com.bnorm.infinite;
+
+/**
+ * Utility class for the Java Flight Recorder events of state machines.  A recording is begun before the measured
+ * work, which returns {@code null} if the event is not enabled, and is ended with the details of the work once it is
+ * done.  Ending a {@code null} recording does nothing, so the events cost a static call when they are not enabled.
+ *
+ * <p>This is the Java 8 version of the class which never records any events.  When built with the Java 21 profile,
+ * the multi-release jar also contains a version of this class which commits Java Flight Recorder events.  The events
+ * are disabled by default and must be enabled in the recording settings.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public final class FlightRecorderEvents {
+
+    /**
+     * Returns {@code true} if Java Flight Recorder events are supported by the running Java version, {@code false}
+     * otherwise.
+     *
+     * @return if Java Flight Recorder events are supported.
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Begins the recording of an event being fired.
+     *
+     * @return the recording or {@code null} if the event is not enabled.
+     */
+    public static Object beginFire() {
+        return null;
+    }
+
+    /**
+     * Ends the recording of an event being fired.
+     *
+     * @param recording the recording or {@code null}.
+     * @param source the state of the state machine when the event was fired.
+     * @param event the event fired.
+     * @param destination the destination state of the transition or {@code null}.
+     * @param transitioned if a transition was performed.
+     */
+    public static void endFire(Object recording, Object source, Object event, Object destination,
+                               boolean transitioned) {
+    }
+
+    /**
+     * Begins the recording of a transition being chosen for an event.
+     *
+     * @return the recording or {@code null} if the event is not enabled.
+     */
+    public static Object beginChoice() {
+        return null;
+    }
+
+    /**
+     * Ends the recording of a transition being chosen for an event.
+     *
+     * @param recording the recording or {@code null}.
+     * @param state the state of the state machine.
+     * @param event the event fired.
+     * @param handler the state which handles the chosen transition or {@code null} if the event is ignored.
+     * @param guards the number of guards evaluated.
+     */
+    public static void endChoice(Object recording, Object state, Object event, Object handler, int guards) {
+    }
+
+    /**
+     * Begins the recording of a stage of a transition.
+     *
+     * @return the recording or {@code null} if the event is not enabled.
+     */
+    public static Object beginStage() {
+        return null;
+    }
+
+    /**
+     * Ends the recording of a stage of a transition.
+     *
+     * @param recording the recording or {@code null}.
+     * @param stage the name of the stage, one of {@code "exit"}, {@code "between"}, or {@code "enter"}.
+     * @param source the source state of the transition.
+     * @param event the event which caused the transition.
+     * @param destination the destination state of the transition.
+     */
+    public static void endStage(Object recording, String stage, Object source, Object event, Object destination) {
+    }
+
+    /**
+     * Returns {@code true} if the event queue wait of asynchronous state machines is recorded, {@code false}
+     * otherwise.  When recorded, the time each event is queued must be captured.
+     *
+     * @return if the event queue wait is recorded.
+     */
+    public static boolean isQueueWaitEnabled() {
+        return false;
+    }
+
+    /**
+     * Records the time an event waited in the event queue of an asynchronous state machine before being processed.
+     *
+     * @param event the event.
+     * @param nanos the wait time in nanoseconds.
+     * @param injected if the event was injected.
+     */
+    public static void queueWaited(Object event, long nanos, boolean injected) {
+    }
+}
@@ -37,6 +37,21 @@ public interface InternalState<S, E, C> {
      */
     Optional<InternalState<S, E, C>> getParentState();
 
+    /**
+     * Returns the number of parents the internal state has.  A state without a parent has a depth of zero.
+     *
+     * @return the depth of the internal state.
+     */
+    default int getDepth() {
+        int depth = 0;
+        Optional<InternalState<S, E, C>> parent = getParentState();
+        while (parent.isPresent()) {
+            depth++;
+            parent = parent.get().getParentState();
+        }
+        return depth;
+    }
+
     /**
      * Returns if the specified state is a parent of the internal state.  This is a recursive method and will check up
      * the parent chain as far as it can.  There is no limit to this so if there is a cyclical parent relationship the
@@ -80,7 +95,7 @@ public interface InternalState<S, E, C> {
         // Check all children...
         return getChildrenStates().stream().anyMatch(c -> Objects.equals(c.getState(), state))
                 // ... before checking recursion to check children's children.
-                || getChildrenStates().parallelStream().anyMatch(c -> c.isChild(state));
+                || getChildrenStates().stream().anyMatch(c -> c.isChild(state));
     }
 
     /**
@@ -115,6 +130,42 @@ public interface InternalState<S, E, C> {
         }
     }
 
+    /**
+     * Returns the timeout of the internal state if it has one.
+     *
+     * @return the optional timeout.
+     * @since 1.3.0
+     */
+    default Optional<StateTimeout<S, E, C>> getTimeout() {
+        return Optional.empty();
+    }
+
+    /**
+     * Returns {@code true} if the internal state or any of its parents has a timeout, {@code false} otherwise.  This
+     * walks up the parent chain so implementations with an immutable parent chain should precompute the result.
+     *
+     * @return if the internal state is timed.
+     * @since 1.3.0
+     */
+    default boolean isTimed() {
+        if (getTimeout().isPresent()) {
+            return true;
+        }
+        final Optional<InternalState<S, E, C>> parent = getParentState();
+        return parent.isPresent() && parent.get().isTimed();
+    }
+
+    /**
+     * Sets the timeout of the internal state, replacing any previous timeout.
+     *
+     * @param timeout the new timeout.
+     * @throws StateMachineException if the internal state does not support timeouts.
+     * @since 1.3.0
+     */
+    default void setTimeout(StateTimeout<S, E, C> timeout) {
+        throw new StateMachineException("Internal state [" + getState() + "] does not support timeouts");
+    }
+
     /**
      * Returns all the exit actions that are performed when the internal state is exited.
      *
@@ -147,6 +198,19 @@ public interface InternalState<S, E, C> {
         }
     }
 
+    /**
+     * Returns the first common ancestor of the internal state and the specified internal state.  If one of the internal
+     * states is the parent of the other, that internal state is returned.
+     *
+     * @param state the other state to find the common ancestor.
+     * @return the first common ancestor.
+     * @see #getCommonAncestor(InternalState, InternalState)
+     * @since 1.3.0
+     */
+    default Optional<InternalState<S, E, C>> getCommonAncestor(InternalState<S, E, C> state) {
+        return getCommonAncestor(this, state);
+    }
+
 
     // =========================== //
     // **** Static Utilities ***** //
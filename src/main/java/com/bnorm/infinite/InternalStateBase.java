@@ -33,6 +33,9 @@ public class InternalStateBase<S, E, C> implements InternalState<S, E, C> {
     /** The exit actions of the state. */
     protected final Set<Action<? super S, ? super E, ? super C>> exitActions;
 
+    /** The optional timeout of the state. */
+    protected Optional<StateTimeout<S, E, C>> timeout;
+
     /**
      * Constructs a new internal state form the specified state.
      *
@@ -44,6 +47,7 @@ public class InternalStateBase<S, E, C> implements InternalState<S, E, C> {
         this.children = new LinkedHashSet<>();
         this.entranceActions = new LinkedHashSet<>();
         this.exitActions = new LinkedHashSet<>();
+        this.timeout = Optional.empty();
     }
 
     /**
@@ -61,6 +65,7 @@ public class InternalStateBase<S, E, C> implements InternalState<S, E, C> {
         this.children = new LinkedHashSet<>();
         this.entranceActions = new TreeSet<>(entranceComparator);
         this.exitActions = new TreeSet<>(exitComparator);
+        this.timeout = Optional.empty();
     }
 
     @Override
@@ -107,4 +112,14 @@ public class InternalStateBase<S, E, C> implements InternalState<S, E, C> {
     public void addExitAction(Action<? super S, ? super E, ? super C> action) {
         exitActions.add(action);
     }
+
+    @Override
+    public Optional<StateTimeout<S, E, C>> getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public void setTimeout(StateTimeout<S, E, C> timeout) {
+        this.timeout = Optional.ofNullable(timeout);
+    }
 }
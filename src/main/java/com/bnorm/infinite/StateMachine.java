@@ -1,6 +1,7 @@
 package com.bnorm.infinite;
 
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * The operational state machine interface.
@@ -34,6 +35,48 @@ public interface StateMachine<S, E, C> {
      */
     void addTransitionListener(TransitionListener<? super S, ? super E, ? super C> listener);
 
+    /**
+     * Adds the specified transition listener to the state machine which is only notified of the specified stages of
+     * transitions.  A listener which is only interested in some stages is not called for the other stages.
+     *
+     * @param stages the stages the listener is notified of.
+     * @param listener the new transition listener.
+     * @throws StateMachineException if no stages are specified.
+     * @since 1.3.0
+     */
+    default void addTransitionListener(Set<TransitionStage> stages,
+                                       TransitionListener<? super S, ? super E, ? super C> listener) {
+        addTransitionListener(stages, null, listener);
+    }
+
+    /**
+     * Adds the specified transition listener to the state machine which is only notified of the specified stages of
+     * transitions accepted by the specified filter.  The filter is checked before each stage the listener is notified
+     * of.  Adding a listener which has already been added replaces the stages and filter it was added with.
+     *
+     * @param stages the stages the listener is notified of.
+     * @param filter the filter of the transitions the listener is notified of or {@code null}.
+     * @param listener the new transition listener.
+     * @throws StateMachineException if no stages are specified.
+     * @since 1.3.0
+     */
+    default void addTransitionListener(Set<TransitionStage> stages, TransitionFilter<? super S, ? super E> filter,
+                                       TransitionListener<? super S, ? super E, ? super C> listener) {
+        throw new StateMachineException("State machine does not support stage filtered transition listeners");
+    }
+
+    /**
+     * Sets the metrics the state machine records transitions, ignored events, guard evaluations, and action timings
+     * to, replacing any previous metrics.  Specifying {@code null} stops recording metrics.
+     *
+     * @param metrics the new metrics or {@code null}.
+     * @throws StateMachineException if the state machine does not support metrics.
+     * @since 1.3.0
+     */
+    default void setMetrics(StateMachineMetrics<? super S, ? super E> metrics) {
+        throw new StateMachineException("State machine does not support metrics");
+    }
+
     /**
      * Fires the specified event.  This is how states are transitioned.
      *
@@ -41,4 +84,64 @@ public interface StateMachine<S, E, C> {
      * @return the resulting transition.
      */
     Optional<Transition<S, E, C>> fire(E event);
+
+    /**
+     * Fires the specified event and returns if a transition was performed.  This is the same as {@link #fire(Object)}
+     * but does not wrap the resulting transition, which allows implementations to avoid allocating objects while
+     * firing events.
+     *
+     * @param event the event fired.
+     * @return if a transition was performed.
+     * @since 1.3.0
+     */
+    default boolean fireFast(E event) {
+        return fire(event).isPresent();
+    }
+
+    /**
+     * Fires each of the specified events in order and summarizes the result.  This is the same as calling {@link
+     * #fireFast(Object)} for each event but allows implementations to amortize the cost of firing across the batch.
+     *
+     * @param events the events fired.
+     * @return the summary of the fired events.
+     * @since 1.3.0
+     */
+    default FireSummary<S> fireAll(Iterable<? extends E> events) {
+        long taken = 0;
+        long ignored = 0;
+        for (E event : events) {
+            if (fireFast(event)) {
+                taken++;
+            } else {
+                ignored++;
+            }
+        }
+        return new FireSummary<>(taken, ignored, getState());
+    }
+
+    /**
+     * Fires the events of the specified array range in order and summarizes the result.  This is the same as calling
+     * {@link #fireFast(Object)} for each event but allows implementations to amortize the cost of firing across the
+     * batch.
+     *
+     * @param events the array of events.
+     * @param from the index of the first event fired, inclusive.
+     * @param to the index of the last event fired, exclusive.
+     * @return the summary of the fired events.
+     * @throws StateMachineException if the range is not within the array.
+     * @since 1.3.0
+     */
+    default FireSummary<S> fireAll(E[] events, int from, int to) {
+        if (from < 0 || from > to || to > events.length) {
+            throw new StateMachineException(
+                    String.format("Range [%d, %d) is not within an array of length [%d]", from, to, events.length));
+        }
+        long taken = 0;
+        for (int i = from; i < to; i++) {
+            if (fireFast(events[i])) {
+                taken++;
+            }
+        }
+        return new FireSummary<>(taken, to - from - taken, getState());
+    }
 }
@@ -1,12 +1,10 @@
 package com.bnorm.infinite;
 
-import java.util.Collections;
-import java.util.LinkedHashSet;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +20,23 @@ import org.slf4j.LoggerFactory;
  */
 public class StateMachineBase<S, E, C> implements StateMachine<S, E, C> {
 
+    /**
+     * The system property which enables trace logging of events and transitions.  Trace logging must be enabled both
+     * by this property and by the logger.
+     *
+     * @since 1.3.0
+     */
+    public static final String TRACE_PROPERTY = "com.bnorm.infinite.trace";
+
+    /**
+     * If trace logging of events and transitions is enabled by the {@value #TRACE_PROPERTY} system property.  As a
+     * constant read once when the class is initialized, the JIT compiler removes the guarded trace logging, along
+     * with the evaluation and boxing of its arguments, when it is disabled.
+     *
+     * @since 1.3.0
+     */
+    protected static final boolean TRACE = Boolean.getBoolean(TRACE_PROPERTY);
+
     /** The class logger. */
     private static final Logger log = LoggerFactory.getLogger(StateMachineBase.class);
 
@@ -34,8 +49,20 @@ public class StateMachineBase<S, E, C> implements StateMachine<S, E, C> {
     /** The current state of the state machine. */
     protected S state;
 
-    /** The state machine transition listeners. */
-    protected final Set<TransitionListener<? super S, ? super E, ? super C>> listeners;
+    /**
+     * The snapshot of the state machine transition listeners.  The snapshot is replaced copy-on-write when a listener
+     * is added, so listeners can be added while events are fired and are notified without allocating an iterator.
+     */
+    protected volatile TransitionListeners<S, E, C> listeners;
+
+    /**
+     * The snapshot of the transition listeners notified while firing a batch of events, or {@code null} when a batch
+     * is not being fired.
+     */
+    protected TransitionListeners<S, E, C> batchListeners;
+
+    /** The metrics of the state machine or {@code null} if metrics are not recorded. */
+    protected StateMachineMetrics<? super S, ? super E> metrics;
 
     /**
      * Constructs a new state machine from the specified state machine structure, starting state, and context.
@@ -48,7 +75,7 @@ public class StateMachineBase<S, E, C> implements StateMachine<S, E, C> {
         this.structure = structure;
         this.context = context;
         this.state = starting;
-        this.listeners = new LinkedHashSet<>();
+        this.listeners = TransitionListeners.empty();
     }
 
     @Override
@@ -63,63 +90,273 @@ public class StateMachineBase<S, E, C> implements StateMachine<S, E, C> {
 
     @Override
     public void addTransitionListener(TransitionListener<? super S, ? super E, ? super C> listener) {
-        listeners.add(listener);
+        addTransitionListener(EnumSet.allOf(TransitionStage.class), null, listener);
+    }
+
+    @Override
+    public synchronized void addTransitionListener(Set<TransitionStage> stages,
+                                                   TransitionFilter<? super S, ? super E> filter,
+                                                   TransitionListener<? super S, ? super E, ? super C> listener) {
+        listeners = listeners.with(stages, filter, listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>When no metrics are set, recording metrics costs a single {@code null} check per event and the clock is never
+     * read.
+     */
+    @Override
+    public void setMetrics(StateMachineMetrics<? super S, ? super E> metrics) {
+        this.metrics = metrics;
     }
 
     @Override
     public Optional<Transition<S, E, C>> fire(E event) {
-        log.trace("Event fired [{}]", event);
-        final Set<Transition<S, E, C>> eventTransitions = structure.getTransitions(event);
+        return Optional.ofNullable(fireTransition(event));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>When the structure has been {@linkplain StateMachineStructure#compile() compiled}, the transitions have constant
+     * destinations, and both {@linkplain #TRACE_PROPERTY trace logging} and {@linkplain FlightRecorderEvents flight
+     * recorder events} are disabled, firing an event does not allocate any objects beyond what the guards, actions, and
+     * listeners themselves allocate.
+     */
+    @Override
+    public boolean fireFast(E event) {
+        return fireTransition(event) != null;
+    }
+
+    /**
+     * Fires the specified event to the state machine and returns the performed transition.  This is the shared path of
+     * {@link #fire(Object)} and {@link #fireFast(Object)}, which only differ in how the result is returned.
+     *
+     * @param event the event fired.
+     * @return the performed transition or {@code null} if no transition was allowed.
+     */
+    private Transition<S, E, C> fireTransition(E event) {
+        final Object recording = FlightRecorderEvents.beginFire();
+        final S source = state;
+        final Transition<S, E, C> allowed = findTransition(event);
+        if (allowed == null) {
+            FlightRecorderEvents.endFire(recording, source, event, null, false);
+            return null;
+        }
+        final Transition<S, E, C> transition = allowed.copy();
+        performTransition(event, transition);
+        FlightRecorderEvents.endFire(recording, source, event, transition.getDestination(), true);
+        return transition;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The transition listeners are snapshot once for the whole batch, so listeners added while the batch is fired
+     * are not notified until the next event fired.  The transitions looked up for an event are reused while the same
+     * event is fired from the same state, so the structure should not be changed by the actions and listeners of the
+     * batch.
+     */
+    @Override
+    public FireSummary<S> fireAll(Iterable<? extends E> events) {
+        long taken = 0;
+        long ignored = 0;
+        final TransitionListeners<S, E, C> previous = beginBatch();
+        try {
+            S lookupState = null;
+            E lookupEvent = null;
+            List<List<Transition<S, E, C>>> lookup = null;
+            for (E event : events) {
+                if (lookup == null || !Objects.equals(state, lookupState) || !Objects.equals(event, lookupEvent)) {
+                    lookupState = state;
+                    lookupEvent = event;
+                    lookup = structure.getTransitions(state, event);
+                }
+                final Transition<S, E, C> allowed = findTransition(event, lookup);
+                if (allowed == null) {
+                    ignored++;
+                } else {
+                    performTransition(event, allowed.copy());
+                    taken++;
+                }
+            }
+        } finally {
+            batchListeners = previous;
+        }
+        return new FireSummary<>(taken, ignored, state);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Firing an array range has the same behavior as {@link #fireAll(Iterable)} but does not allocate an iterator.
+     */
+    @Override
+    public FireSummary<S> fireAll(E[] events, int from, int to) {
+        checkRange(events, from, to);
+        long taken = 0;
+        final TransitionListeners<S, E, C> previous = beginBatch();
+        try {
+            S lookupState = null;
+            E lookupEvent = null;
+            List<List<Transition<S, E, C>>> lookup = null;
+            for (int i = from; i < to; i++) {
+                final E event = events[i];
+                if (lookup == null || !Objects.equals(state, lookupState) || !Objects.equals(event, lookupEvent)) {
+                    lookupState = state;
+                    lookupEvent = event;
+                    lookup = structure.getTransitions(state, event);
+                }
+                final Transition<S, E, C> allowed = findTransition(event, lookup);
+                if (allowed != null) {
+                    performTransition(event, allowed.copy());
+                    taken++;
+                }
+            }
+        } finally {
+            batchListeners = previous;
+        }
+        return new FireSummary<>(taken, to - from - taken, state);
+    }
+
+    /**
+     * Checks that the specified range is within the specified array of events.
+     *
+     * @param events the array of events.
+     * @param from the index of the first event, inclusive.
+     * @param to the index of the last event, exclusive.
+     * @throws StateMachineException if the range is not within the array.
+     */
+    protected static void checkRange(Object[] events, int from, int to) {
+        if (from < 0 || from > to || to > events.length) {
+            throw new StateMachineException(
+                    String.format("Range [%d, %d) is not within an array of length [%d]", from, to, events.length));
+        }
+    }
+
+    /**
+     * Begins firing a batch of events by taking a snapshot of the transition listeners.  The returned snapshot of the
+     * enclosing batch, if any, should be restored once the batch has been fired.
+     *
+     * @return the previous snapshot of the transition listeners.
+     */
+    protected TransitionListeners<S, E, C> beginBatch() {
+        final TransitionListeners<S, E, C> previous = batchListeners;
+        batchListeners = listeners;
+        return previous;
+    }
+
+    /**
+     * Finds the transition that is allowed for the specified event from the current state.  If there is no allowed
+     * transition, {@code null} is returned.
+     *
+     * @param event the event fired.
+     * @return the allowed transition or {@code null}.
+     * @throws StateMachineException if more than one transition is allowed for the event.
+     */
+    protected Transition<S, E, C> findTransition(E event) {
+        return findTransition(event, structure.getTransitions(state, event));
+    }
+
+    /**
+     * Finds the transition that is allowed for the specified event from the specified transitions of the current
+     * state.  If there is no allowed transition, {@code null} is returned.
+     *
+     * @param event the event fired.
+     * @param eventTransitions the transitions for the event grouped by handling state.
+     * @return the allowed transition or {@code null}.
+     * @throws StateMachineException if more than one transition is allowed for the event.
+     * @see StateMachineStructure#getTransitions(Object, Object)
+     */
+    protected Transition<S, E, C> findTransition(E event, List<List<Transition<S, E, C>>> eventTransitions) {
+        if (TRACE) {
+            log.trace("Event fired [{}]", event);
+        }
+        final Object recording = FlightRecorderEvents.beginChoice();
         if (eventTransitions.isEmpty()) {
-            log.trace("No transitions for event [{}]", event);
-            return Optional.empty();
+            if (TRACE) {
+                log.trace("No transitions for event [{}]", event);
+            }
+            if (metrics != null) {
+                metrics.eventIgnored(state, event);
+            }
+            FlightRecorderEvents.endChoice(recording, state, event, null, 0);
+            return null;
         }
 
 
         // ===== Find The Possible Transitions ===== //
         /*
-         * To build the possible transition list, we will start with the current internal state and see if it handles
-         * the specified event.  If it does not, we iterate one level up the parent chain and repeat.
+         * The structure groups the transitions for the event by the state that handles them, starting with the current
+         * state and moving up the parent chain.  Use the first group that has any allowed transitions.
          */
 
-        List<Transition<S, E, C>> possible = Collections.emptyList();
-        Optional<InternalState<S, E, C>> optional = Optional.of(structure.getState(state));
-        while (possible.isEmpty() && optional.isPresent()) {
-            final InternalState<S, E, C> state = optional.get();
-            log.trace("Looking for allowed transitions from state [{}]", state.getState());
-            possible = eventTransitions.stream()
-                                       .filter(t -> Objects.equals(t.getSource(), state.getState()))
-                                       .filter(t -> t.getGuard().allowed(getContext()))
-                                       .collect(Collectors.toList());
-            optional = state.getParentState();
-            log.trace("Moving up the parent chain to state [{}]",
-                      optional.isPresent() ? optional.get().getState() : null);
-        }
-
-        if (possible.isEmpty()) {
-            log.trace("No transitions possible for event [{}]", event);
-            return Optional.empty();
-        } else if (possible.size() > 1) {
-            log.warn("Multiple [{}] transitions possible for event [{}]", possible.size(), event);
+        Transition<S, E, C> allowed = null;
+        int possible = 0;
+        int guards = 0;
+        for (int i = 0; possible == 0 && i < eventTransitions.size(); i++) {
+            final List<Transition<S, E, C>> handled = eventTransitions.get(i);
+            if (TRACE) {
+                log.trace("Looking for allowed transitions from state [{}]", handled.get(0).getSource());
+            }
+            for (int j = 0; j < handled.size(); j++) {
+                final Transition<S, E, C> candidate = handled.get(j);
+                final boolean guardAllowed = candidate.getGuard().allowed(getContext());
+                guards++;
+                if (metrics != null) {
+                    metrics.guardEvaluated(candidate.getSource(), event, guardAllowed);
+                }
+                if (guardAllowed) {
+                    allowed = candidate;
+                    possible++;
+                }
+            }
+        }
+
+        if (possible == 0) {
+            if (TRACE) {
+                log.trace("No transitions possible for event [{}]", event);
+            }
+            if (metrics != null) {
+                metrics.eventIgnored(state, event);
+            }
+            FlightRecorderEvents.endChoice(recording, state, event, null, guards);
+            return null;
+        } else if (possible > 1) {
+            log.warn("Multiple [{}] transitions possible for event [{}]", possible, event);
             throw new StateMachineException(
-                    String.format("Multiple [%d] transitions possible for event [%s]", possible.size(), event));
+                    String.format("Multiple [%d] transitions possible for event [%s]", possible, event));
         }
+        FlightRecorderEvents.endChoice(recording, state, event, allowed.getSource(), guards);
+        return allowed;
+    }
+
+    /**
+     * Performs the specified transition caused by the specified event.  The transition should be a snapshot {@link
+     * Transition#copy() copy} so the destination does not change each time it is requested.  With dynamic transitions
+     * this guarantees that the getDestination() method is only called once for each transition.  This snapshot of the
+     * transition is then passed to all consumers of the transition.  For transitions with a constant destination, the
+     * snapshot may be the immutable transition instance shared by the state machine structure.
+     *
+     * @param event the event fired.
+     * @param transition the snapshot of the transition to perform.
+     */
+    protected void performTransition(E event, Transition<S, E, C> transition) {
 
         // ===== Gather Transition Information ===== //
-        /*
-         * Create a snapshot clone of the transition so the destination does not change each time we ask.  With dynamic
-         * transitions this guarantees that the getDestination() method is only called once for each transition.  This
-         * guardless copy of the transition is then passed to the to all consumers of the transition and eventually
-         * returned by the method.
-         */
 
-        Transition<S, E, C> transition = possible.get(0).copy();
+        final S source = state;
         final S destination = transition.getDestination();
+        final StateMachineMetrics<? super S, ? super E> metrics = this.metrics;
+        long start = 0;
 
         Optional<InternalState<S, E, C>> commonAncestor;
-        commonAncestor = InternalState.getCommonAncestor(structure.getState(state), structure.getState(destination));
+        commonAncestor = structure.getState(state).getCommonAncestor(structure.getState(destination));
         final S commonAncestorState = commonAncestor.isPresent() ? commonAncestor.get().getState() : null;
-        log.trace("Common ancestor of states [{}] and [{}] is [{}]", state, destination, commonAncestorState);
+        if (TRACE) {
+            log.trace("Common ancestor of states [{}] and [{}] is [{}]", state, destination, commonAncestorState);
+        }
 
 
         // ===== Perform Transition ===== //
@@ -138,42 +375,99 @@ public class StateMachineBase<S, E, C> implements StateMachine<S, E, C> {
          * listeners.
          */
 
-        log.trace("Starting transition from [{}] to [{}]", state, commonAncestorState);
+        if (TRACE) {
+            log.trace("Starting transition from [{}] to [{}]", state, commonAncestorState);
+        }
 
         // exit
 
-        log.trace("Notifying listeners before transition from [{}] to [{}]", state, destination);
-        listeners.forEach(l -> l.stateTransition(TransitionStage.Before, event, transition, context));
+        Object recording = FlightRecorderEvents.beginStage();
+        if (TRACE) {
+            log.trace("Notifying listeners before transition from [{}] to [{}]", state, destination);
+        }
+        notifyListeners(TransitionStage.Before, event, transition);
 
-        log.trace("Performing exit actions of [{}]", state);
+        if (TRACE) {
+            log.trace("Performing exit actions of [{}]", state);
+        }
+        if (metrics != null) {
+            start = System.nanoTime();
+        }
         structure.getState(state).exit(event, transition, context);
+        if (metrics != null) {
+            metrics.stateActionsPerformed(source, ActionType.Exit, System.nanoTime() - start);
+        }
 
-        log.trace("Finished transition from [{}] to [{}]", state, commonAncestorState);
+        if (TRACE) {
+            log.trace("Finished transition from [{}] to [{}]", state, commonAncestorState);
+        }
         state = commonAncestorState;
+        FlightRecorderEvents.endStage(recording, "exit", source, event, destination);
 
         // between
 
-        log.trace("Notifying listeners between transition from [{}] to [{}]", state, destination);
-        listeners.forEach(l -> l.stateTransition(TransitionStage.Between, event, transition, context));
+        recording = FlightRecorderEvents.beginStage();
+        if (TRACE) {
+            log.trace("Notifying listeners between transition from [{}] to [{}]", state, destination);
+        }
+        notifyListeners(TransitionStage.Between, event, transition);
 
-        log.trace("Performing transition action while in state [{}]", state);
+        if (TRACE) {
+            log.trace("Performing transition action while in state [{}]", state);
+        }
+        if (metrics != null) {
+            start = System.nanoTime();
+        }
         transition.getAction().perform(state, event, transition, context);
+        if (metrics != null) {
+            metrics.transitionActionPerformed(source, event, System.nanoTime() - start);
+        }
+        FlightRecorderEvents.endStage(recording, "between", source, event, destination);
 
         // enter
 
-        log.trace("Starting transition from [{}] to [{}]", state, destination);
+        recording = FlightRecorderEvents.beginStage();
+        if (TRACE) {
+            log.trace("Starting transition from [{}] to [{}]", state, destination);
+        }
         state = destination;
 
-        log.trace("Performing entrance actions of [{}]", state);
+        if (TRACE) {
+            log.trace("Performing entrance actions of [{}]", state);
+        }
+        if (metrics != null) {
+            start = System.nanoTime();
+        }
         structure.getState(state).enter(event, transition, context);
+        if (metrics != null) {
+            metrics.stateActionsPerformed(destination, ActionType.Entrance, System.nanoTime() - start);
+        }
 
-        log.trace("Notifying listeners after transition from [{}] to [{}]", state, destination);
-        listeners.forEach(l -> l.stateTransition(TransitionStage.After, event, transition, context));
+        if (TRACE) {
+            log.trace("Notifying listeners after transition from [{}] to [{}]", state, destination);
+        }
+        notifyListeners(TransitionStage.After, event, transition);
+        FlightRecorderEvents.endStage(recording, "enter", source, event, destination);
 
         // done
 
-        log.trace("Finished transition from [{}] to [{}]", state, destination);
+        if (metrics != null) {
+            metrics.transitionPerformed(source, event, destination);
+        }
+        if (TRACE) {
+            log.trace("Finished transition from [{}] to [{}]", state, destination);
+        }
+    }
 
-        return Optional.of(transition);
+    /**
+     * Notifies the transition listeners interested in the specified stage of the transition.
+     *
+     * @param stage the stage of the transition.
+     * @param event the event that caused the transition.
+     * @param transition the transition.
+     */
+    protected void notifyListeners(TransitionStage stage, E event, Transition<S, E, C> transition) {
+        final TransitionListeners<S, E, C> batch = batchListeners;
+        (batch != null ? batch : listeners).notifyListeners(stage, event, transition, context);
     }
 }
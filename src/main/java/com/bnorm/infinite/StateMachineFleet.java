@@ -0,0 +1,139 @@
+package com.bnorm.infinite;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A fleet of lightweight state machine instances which share a single structure, context, and set of transition
+ * listeners.  Only the current state of each instance is stored by the fleet, so the memory of each instance is a few
+ * bytes instead of a full state machine.  Instances are identified by their index within the fleet.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @param <C> the class type of the context.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public interface StateMachineFleet<S, E, C> {
+
+    /**
+     * Returns the number of state machine instances in the fleet.
+     *
+     * @return the number of instances.
+     */
+    int size();
+
+    /**
+     * Returns the context shared by all instances of the fleet.
+     *
+     * @return the context.
+     */
+    C getContext();
+
+    /**
+     * Returns the current state of the specified instance.
+     *
+     * @param instance the index of the instance.
+     * @return the current state of the instance.
+     */
+    S getState(int instance);
+
+    /**
+     * Adds the specified transition listener to the fleet.  The listener is notified of the transitions of every
+     * instance.
+     *
+     * @param listener the new transition listener.
+     */
+    void addTransitionListener(TransitionListener<? super S, ? super E, ? super C> listener);
+
+    /**
+     * Adds the specified transition listener to the fleet which is only notified of the specified stages of
+     * transitions.  A listener which is only interested in some stages is not called for the other stages.
+     *
+     * @param stages the stages the listener is notified of.
+     * @param listener the new transition listener.
+     * @throws StateMachineException if no stages are specified.
+     */
+    default void addTransitionListener(Set<TransitionStage> stages,
+                                       TransitionListener<? super S, ? super E, ? super C> listener) {
+        addTransitionListener(stages, null, listener);
+    }
+
+    /**
+     * Adds the specified transition listener to the fleet which is only notified of the specified stages of
+     * transitions accepted by the specified filter.  The filter is checked before each stage the listener is notified
+     * of.  Adding a listener which has already been added replaces the stages and filter it was added with.
+     *
+     * @param stages the stages the listener is notified of.
+     * @param filter the filter of the transitions the listener is notified of or {@code null}.
+     * @param listener the new transition listener.
+     * @throws StateMachineException if no stages are specified.
+     */
+    void addTransitionListener(Set<TransitionStage> stages, TransitionFilter<? super S, ? super E> filter,
+                               TransitionListener<? super S, ? super E, ? super C> listener);
+
+    /**
+     * Fires the specified event for the specified instance.
+     *
+     * @param instance the index of the instance.
+     * @param event the event fired.
+     * @return the resulting transition.
+     * @see StateMachine#fire(Object)
+     */
+    Optional<Transition<S, E, C>> fire(int instance, E event);
+
+    /**
+     * Fires the specified event for the specified instance and returns if a transition was performed.
+     *
+     * @param instance the index of the instance.
+     * @param event the event fired.
+     * @return if a transition was performed.
+     * @see StateMachine#fireFast(Object)
+     */
+    default boolean fireFast(int instance, E event) {
+        return fire(instance, event).isPresent();
+    }
+
+    /**
+     * Fires the specified event for every instance of the fleet and summarizes the result.
+     *
+     * @param event the event fired.
+     * @return the summary of the fired events.
+     */
+    FleetSummary<S> fireAll(E event);
+
+    /**
+     * Fires the specified events for the instances of the fleet and summarizes the result.  The event at each index of
+     * the array is fired for the instance with the same index, and instances with a {@code null} event are skipped.
+     *
+     * @param events the events fired, indexed by instance.
+     * @return the summary of the fired events.
+     * @throws StateMachineException if the length of the array is not the size of the fleet.
+     */
+    FleetSummary<S> fireAll(E[] events);
+
+    /**
+     * Fires the specified event for every instance of the fleet in parallel on the specified pool and summarizes the
+     * result.  The instances are split into contiguous chunks which are fired concurrently, so the guards, actions,
+     * listeners, and context must be thread-safe.  The events of a single instance are never fired concurrently.
+     *
+     * @param event the event fired.
+     * @param pool the pool used to fire the events.
+     * @return the summary of the fired events.
+     */
+    FleetSummary<S> fireAllParallel(E event, ForkJoinPool pool);
+
+    /**
+     * Fires the specified events for the instances of the fleet in parallel on the specified pool and summarizes the
+     * result.  Like {@link #fireAll(Object[])}, the event at each index of the array is fired for the instance with the
+     * same index.  Like {@link #fireAllParallel(Object, ForkJoinPool)}, the guards, actions, listeners, and context
+     * must be thread-safe.
+     *
+     * @param events the events fired, indexed by instance.
+     * @param pool the pool used to fire the events.
+     * @return the summary of the fired events.
+     * @throws StateMachineException if the length of the array is not the size of the fleet.
+     */
+    FleetSummary<S> fireAllParallel(E[] events, ForkJoinPool pool);
+}
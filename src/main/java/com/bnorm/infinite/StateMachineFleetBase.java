@@ -0,0 +1,416 @@
+package com.bnorm.infinite;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The base implementation of a state machine fleet.  The current state of each instance is stored as the ordinal of
+ * the state in a {@code byte[]}, or an {@code int[]} if there are more than 256 states, and events are fired through a
+ * single flyweight state machine which is loaded with the state of the instance before each event.
+ *
+ * <p>Like {@link StateMachineBase}, a fleet is not thread-safe, except that the parallel bulk fire methods create a
+ * flyweight state machine for each chunk of instances.  A transition to a state which is not a possible state of the
+ * fleet is rejected with a {@link StateMachineException} before any action or listener is run, so the instance is left
+ * unchanged.  If an action or listener throws an exception while an event is fired, the actions and listeners run
+ * before the exception are not undone, but the state of the instance is not changed.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @param <C> the class type of the context.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class StateMachineFleetBase<S, E, C> implements StateMachineFleet<S, E, C> {
+
+    /** The maximum number of states which have their ordinals stored in a {@code byte[]}. */
+    protected static final int MAX_BYTE_STATES = 256;
+
+    /** The default number of instances in each chunk fired in parallel. */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    /** The compiled state machine structure shared by all instances. */
+    protected final StateMachineStructure<S, E, C> structure;
+
+    /** The context shared by all instances. */
+    protected final C context;
+
+    /** The states of the fleet indexed by ordinal. */
+    protected final S[] states;
+
+    /** The state to ordinal map. */
+    protected final Map<S, Integer> ordinals;
+
+    /** The state ordinals of the instances if there are at most 256 states, otherwise {@code null}. */
+    protected final byte[] byteOrdinals;
+
+    /** The state ordinals of the instances if there are more than 256 states, otherwise {@code null}. */
+    protected final int[] intOrdinals;
+
+    /** The snapshot of the transition listeners shared by all instances, replaced copy-on-write. */
+    protected volatile TransitionListeners<S, E, C> listeners;
+
+    /** The flyweight state machine used to fire events. */
+    protected final Flyweight flyweight;
+
+    /** The number of instances in each chunk fired in parallel. */
+    protected final int chunkSize;
+
+    /**
+     * Constructs a new state machine fleet from the specified state machine structure, possible states, number of
+     * instances, starting state, and context.  The structure is {@linkplain StateMachineStructure#compile() compiled}
+     * and firing an event which would transition an instance to a state that is not a possible state throws a {@link
+     * StateMachineException} without performing the transition.
+     *
+     * @param structure the state machine structure.
+     * @param states the possible states of the instances.
+     * @param size the number of instances.
+     * @param starting the starting state of every instance.
+     * @param context the context shared by all instances.
+     * @throws StateMachineException if the size is negative, the possible states contain duplicates, or the starting
+     * state is not a possible state.
+     */
+    public StateMachineFleetBase(StateMachineStructure<S, E, C> structure, Collection<? extends S> states, int size,
+                                 S starting, C context) {
+        this(structure, states, size, starting, context, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a new state machine fleet from the specified state machine structure, possible states, number of
+     * instances, starting state, context, and the number of instances in each chunk fired in parallel.  Chunks are
+     * contiguous ranges of instances, so each parallel task works on its own region of the state ordinal array.
+     *
+     * @param structure the state machine structure.
+     * @param states the possible states of the instances.
+     * @param size the number of instances.
+     * @param starting the starting state of every instance.
+     * @param context the context shared by all instances.
+     * @param chunkSize the number of instances in each chunk fired in parallel.
+     * @throws StateMachineException if the size is negative, the chunk size is not positive, the possible states
+     * contain duplicates, or the starting state is not a possible state.
+     */
+    @SuppressWarnings("unchecked")
+    public StateMachineFleetBase(StateMachineStructure<S, E, C> structure, Collection<? extends S> states, int size,
+                                 S starting, C context, int chunkSize) {
+        if (size < 0) {
+            throw new StateMachineException("Fleet size must not be negative [" + size + "]");
+        } else if (chunkSize < 1) {
+            throw new StateMachineException("Fleet chunk size must be positive [" + chunkSize + "]");
+        }
+        this.structure = structure.compile();
+        this.context = context;
+        this.states = (S[]) states.toArray();
+        this.ordinals = new HashMap<>();
+        for (int i = 0; i < this.states.length; i++) {
+            if (ordinals.put(this.states[i], i) != null) {
+                throw new StateMachineException("Duplicate fleet state [" + this.states[i] + "]");
+            }
+        }
+
+        final int startingOrdinal = ordinalOf(starting);
+        if (this.states.length <= MAX_BYTE_STATES) {
+            this.byteOrdinals = new byte[size];
+            this.intOrdinals = null;
+            Arrays.fill(byteOrdinals, (byte) startingOrdinal);
+        } else {
+            this.byteOrdinals = null;
+            this.intOrdinals = new int[size];
+            Arrays.fill(intOrdinals, startingOrdinal);
+        }
+        this.listeners = TransitionListeners.empty();
+        this.flyweight = new Flyweight();
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int size() {
+        return byteOrdinals != null ? byteOrdinals.length : intOrdinals.length;
+    }
+
+    @Override
+    public C getContext() {
+        return context;
+    }
+
+    @Override
+    public S getState(int instance) {
+        return states[getOrdinal(instance)];
+    }
+
+    @Override
+    public void addTransitionListener(TransitionListener<? super S, ? super E, ? super C> listener) {
+        addTransitionListener(EnumSet.allOf(TransitionStage.class), null, listener);
+    }
+
+    @Override
+    public synchronized void addTransitionListener(Set<TransitionStage> stages,
+                                                   TransitionFilter<? super S, ? super E> filter,
+                                                   TransitionListener<? super S, ? super E, ? super C> listener) {
+        listeners = listeners.with(stages, filter, listener);
+    }
+
+    @Override
+    public Optional<Transition<S, E, C>> fire(int instance, E event) {
+        return flyweight.fire(instance, event);
+    }
+
+    @Override
+    public boolean fireFast(int instance, E event) {
+        return flyweight.fireFast(instance, event);
+    }
+
+    @Override
+    public FleetSummary<S> fireAll(E event) {
+        return summarize(fireRange(flyweight, event, null, 0, size()));
+    }
+
+    @Override
+    public FleetSummary<S> fireAll(E[] events) {
+        checkLength(events);
+        return summarize(fireRange(flyweight, null, events, 0, size()));
+    }
+
+    @Override
+    public FleetSummary<S> fireAllParallel(E event, ForkJoinPool pool) {
+        return summarize(pool.invoke(new FireTask(event, null, 0, size())));
+    }
+
+    @Override
+    public FleetSummary<S> fireAllParallel(E[] events, ForkJoinPool pool) {
+        checkLength(events);
+        return summarize(pool.invoke(new FireTask(null, events, 0, size())));
+    }
+
+    /**
+     * Fires events for the specified range of instances with the specified flyweight state machine.  Either the single
+     * event fired for every instance or the events indexed by instance is specified.  The result is the number of
+     * instances in each state, indexed by ordinal, followed by the number of taken and ignored events.
+     *
+     * @param machine the flyweight state machine used to fire the events.
+     * @param event the event fired for every instance or {@code null}.
+     * @param events the events indexed by instance or {@code null}.
+     * @param from the index of the first instance, inclusive.
+     * @param to the index of the last instance, exclusive.
+     * @return the counts of the range.
+     */
+    protected long[] fireRange(Flyweight machine, E event, E[] events, int from, int to) {
+        final long[] counts = new long[states.length + 2];
+        long taken = 0;
+        long ignored = 0;
+        for (int i = from; i < to; i++) {
+            final E fired = events != null ? events[i] : event;
+            if (fired != null || events == null) {
+                if (machine.fireFast(i, fired)) {
+                    taken++;
+                } else {
+                    ignored++;
+                }
+            }
+            counts[getOrdinal(i)]++;
+        }
+        counts[states.length] = taken;
+        counts[states.length + 1] = ignored;
+        return counts;
+    }
+
+    /**
+     * Creates a summary from the specified counts returned by {@link #fireRange(Flyweight, Object, Object[], int,
+     * int)}.
+     *
+     * @param counts the counts of all instances.
+     * @return the summary.
+     */
+    protected FleetSummary<S> summarize(long[] counts) {
+        final Map<S, Long> byState = new LinkedHashMap<>();
+        for (int i = 0; i < states.length; i++) {
+            byState.put(states[i], counts[i]);
+        }
+        return new FleetSummary<>(counts[states.length], counts[states.length + 1],
+                                  Collections.unmodifiableMap(byState));
+    }
+
+    /**
+     * Checks that the specified array of events has an event for every instance.
+     *
+     * @param events the events indexed by instance.
+     * @throws StateMachineException if the length of the array is not the size of the fleet.
+     */
+    protected void checkLength(E[] events) {
+        if (events.length != size()) {
+            throw new StateMachineException(
+                    String.format("Events length [%d] is not the fleet size [%d]", events.length, size()));
+        }
+    }
+
+    /**
+     * Returns the state ordinal of the specified instance.
+     *
+     * @param instance the index of the instance.
+     * @return the state ordinal of the instance.
+     */
+    protected int getOrdinal(int instance) {
+        return byteOrdinals != null ? byteOrdinals[instance] & 0xFF : intOrdinals[instance];
+    }
+
+    /**
+     * Sets the state ordinal of the specified instance.
+     *
+     * @param instance the index of the instance.
+     * @param ordinal the new state ordinal of the instance.
+     */
+    protected void setOrdinal(int instance, int ordinal) {
+        if (byteOrdinals != null) {
+            byteOrdinals[instance] = (byte) ordinal;
+        } else {
+            intOrdinals[instance] = ordinal;
+        }
+    }
+
+    /**
+     * Returns the ordinal of the specified state.
+     *
+     * @param state the state.
+     * @return the ordinal of the state.
+     * @throws StateMachineException if the state is not a possible state of the fleet.
+     */
+    protected int ordinalOf(S state) {
+        final Integer ordinal = ordinals.get(state);
+        if (ordinal == null) {
+            throw new StateMachineException("State [" + state + "] is not a possible state of the fleet");
+        }
+        return ordinal;
+    }
+
+    /**
+     * A fork/join task which fires events for a range of instances.  The range is split on chunk boundaries until it
+     * is a single chunk, which is fired with its own flyweight state machine.
+     */
+    protected class FireTask extends RecursiveTask<long[]> {
+
+        /** The serial version UID. */
+        private static final long serialVersionUID = 1L;
+
+        /** The event fired for every instance or {@code null}. */
+        protected final E event;
+
+        /** The events indexed by instance or {@code null}. */
+        protected final E[] events;
+
+        /** The index of the first instance, inclusive. */
+        protected final int from;
+
+        /** The index of the last instance, exclusive. */
+        protected final int to;
+
+        /**
+         * Constructs a new fire task for the specified range of instances.
+         *
+         * @param event the event fired for every instance or {@code null}.
+         * @param events the events indexed by instance or {@code null}.
+         * @param from the index of the first instance, inclusive.
+         * @param to the index of the last instance, exclusive.
+         */
+        protected FireTask(E event, E[] events, int from, int to) {
+            this.event = event;
+            this.events = events;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            final int length = to - from;
+            if (length <= chunkSize) {
+                return fireRange(new Flyweight(), event, events, from, to);
+            }
+
+            // Split on a chunk boundary so tasks do not share the edges of their chunks
+            final int half = (int) (((length / 2) + (long) chunkSize - 1) / chunkSize * chunkSize);
+            final FireTask left = new FireTask(event, events, from, from + half);
+            final FireTask right = new FireTask(event, events, from + half, to);
+            left.fork();
+            final long[] counts = right.compute();
+            final long[] leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += leftCounts[i];
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * A flyweight state machine which fires events for the instances of the fleet.  The state of the instance is
+     * loaded before each event and stored once the transition has been performed.  The destination of a transition is
+     * checked to be a possible state of the fleet before the transition is performed.  The listeners of the fleet are
+     * notified of all transitions.
+     */
+    protected class Flyweight extends StateMachineBase<S, E, C> {
+
+        /** The ordinal of the destination of the last transition performed. */
+        private int destination;
+
+        /**
+         * Constructs a new flyweight state machine for the fleet.
+         */
+        protected Flyweight() {
+            super(StateMachineFleetBase.this.structure, null, StateMachineFleetBase.this.context);
+        }
+
+        /**
+         * Fires the specified event for the specified instance.
+         *
+         * @param instance the index of the instance.
+         * @param event the event fired.
+         * @return the resulting transition.
+         */
+        public Optional<Transition<S, E, C>> fire(int instance, E event) {
+            state = states[getOrdinal(instance)];
+            final Optional<Transition<S, E, C>> transition = fire(event);
+            if (transition.isPresent()) {
+                setOrdinal(instance, destination);
+            }
+            return transition;
+        }
+
+        /**
+         * Fires the specified event for the specified instance and returns if a transition was performed.
+         *
+         * @param instance the index of the instance.
+         * @param event the event fired.
+         * @return if a transition was performed.
+         */
+        public boolean fireFast(int instance, E event) {
+            state = states[getOrdinal(instance)];
+            final boolean taken = fireFast(event);
+            if (taken) {
+                setOrdinal(instance, destination);
+            }
+            return taken;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @throws StateMachineException if the destination is not a possible state of the fleet.
+         */
+        @Override
+        protected void performTransition(E event, Transition<S, E, C> transition) {
+            // Reject the destination before any action or listener is run.
+            destination = ordinalOf(transition.getDestination());
+            super.performTransition(event, transition);
+        }
+
+        @Override
+        protected void notifyListeners(TransitionStage stage, E event, Transition<S, E, C> transition) {
+            StateMachineFleetBase.this.listeners.notifyListeners(stage, event, transition, context);
+        }
+    }
+}
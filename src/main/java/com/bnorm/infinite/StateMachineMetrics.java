@@ -0,0 +1,58 @@
+package com.bnorm.infinite;
+
+/**
+ * A service provider interface for recording the metrics of state machines.  Metrics are recorded by the thread firing
+ * events, so implementations should be cheap and, if shared between state machines, thread-safe.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @author Brian Norman
+ * @since 1.3.0
+ * @see StateMachine#setMetrics(StateMachineMetrics)
+ */
+public interface StateMachineMetrics<S, E> {
+
+    /**
+     * Records that a transition was performed.
+     *
+     * @param source the state of the state machine when the event was fired.
+     * @param event the event that caused the transition.
+     * @param destination the destination state of the transition.
+     */
+    void transitionPerformed(S source, E event, S destination);
+
+    /**
+     * Records that an event was fired which did not cause a transition.
+     *
+     * @param state the state of the state machine when the event was fired.
+     * @param event the ignored event.
+     */
+    void eventIgnored(S state, E event);
+
+    /**
+     * Records that the guard of a transition was evaluated.
+     *
+     * @param source the source state of the guarded transition.
+     * @param event the event fired.
+     * @param allowed if the guard allowed the transition.
+     */
+    void guardEvaluated(S source, E event, boolean allowed);
+
+    /**
+     * Records the time spent performing the entrance or exit actions of a transition.
+     *
+     * @param state the state which was exited or the destination state which was entered.
+     * @param type the type of the actions.
+     * @param nanos the time spent performing the actions in nanoseconds.
+     */
+    void stateActionsPerformed(S state, ActionType type, long nanos);
+
+    /**
+     * Records the time spent performing the action of a transition.
+     *
+     * @param source the state of the state machine when the event was fired.
+     * @param event the event that caused the transition.
+     * @param nanos the time spent performing the action in nanoseconds.
+     */
+    void transitionActionPerformed(S source, E event, long nanos);
+}
@@ -1,6 +1,12 @@
 package com.bnorm.infinite;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * A structure class representing states and transitions between them.  This structure does not have any state machine
@@ -56,4 +62,56 @@ public interface StateMachineStructure<S, E, C> {
      * @param transition the event transition.
      */
     void addTransition(E event, Transition<S, E, C> transition);
+
+    /**
+     * Returns the transitions that may handle the specified event while the state machine is in the specified state.
+     * The transitions are grouped by the state that handles them, starting with the specified state and followed by
+     * each parent state up the parent chain.  States that do not handle the event are skipped so the returned list is
+     * empty if the event is not handled by the state or any of its parents.
+     *
+     * <p>The default implementation searches the transitions of the event every time it is called.  Compiled
+     * structures return a precomputed list instead.
+     *
+     * @param state the current state of the state machine.
+     * @param event the state machine event.
+     * @return the possible transitions grouped by handling state.
+     */
+    default List<List<Transition<S, E, C>>> getTransitions(S state, E event) {
+        final Set<Transition<S, E, C>> eventTransitions = getTransitions(event);
+        if (eventTransitions.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<List<Transition<S, E, C>>> possible = new ArrayList<>();
+        Optional<InternalState<S, E, C>> optional = Optional.of(getState(state));
+        while (optional.isPresent()) {
+            final S handling = optional.get().getState();
+            final List<Transition<S, E, C>> transitions;
+            transitions = eventTransitions.stream()
+                                          .filter(t -> Objects.equals(t.getSource(), handling))
+                                          .collect(Collectors.toList());
+            if (!transitions.isEmpty()) {
+                possible.add(transitions);
+            }
+            optional = optional.get().getParentState();
+        }
+        return possible;
+    }
+
+    /**
+     * Compiles the state machine structure into an immutable structure.  The compiled structure precomputes the
+     * possible transitions of every state and event pair so state machines do not have to search for them each time an
+     * event is fired.  Changes made to this structure after it is compiled are not reflected in the compiled structure
+     * and the compiled structure does not allow any transitions to be added.
+     *
+     * <p>The default implementation returns this structure uncompiled since the states and events of a structure cannot
+     * be enumerated through this interface.  Implementations which can enumerate their states and transitions should
+     * override this method and return a {@link CompiledStateMachineStructure}.
+     *
+     * @return the compiled state machine structure.
+     * @since 1.3.0
+     */
+    default StateMachineStructure<S, E, C> compile() {
+        return this;
+    }
 }
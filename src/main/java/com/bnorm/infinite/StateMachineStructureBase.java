@@ -1,14 +1,23 @@
 package com.bnorm.infinite;
 
+import java.util.AbstractSet;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * The base implementation of a state machine structure.
  *
+ * <p>The states and transitions are stored in concurrent maps and transitions are appended to insertion ordered sets,
+ * so reading the structure never acquires a lock and can be shared between any number of state machines on any number
+ * of threads, and adding a state or transition takes constant time no matter how large the structure is.  Once the
+ * structure is fully configured, it can be frozen into an immutable structure with {@link #compile()}.
+ *
  * @param <S> the class type of the states.
  * @param <E> the class type of the events.
  * @param <C> the class type of the context.
@@ -17,17 +26,20 @@ import java.util.Set;
  */
 public class StateMachineStructureBase<S, E, C> implements StateMachineStructure<S, E, C> {
 
+    /** The key used for {@code null} states and events, which concurrent maps do not support. */
+    protected static final Object NULL_KEY = new Object();
+
     /** The state machine internal state factory. */
     protected final InternalStateFactory<S, E, C> internalStateFactory;
 
     /** The state transition factory. */
     protected final TransitionFactory<S, E, C> transitionFactory;
 
-    /** The state to internal state map. */
-    protected final Map<S, InternalState<S, E, C>> states;
+    /** The state to internal state map keyed by {@link #key(Object)}. */
+    protected final ConcurrentMap<Object, InternalState<S, E, C>> states;
 
-    /** The event to transition map. */
-    protected final Map<E, Set<Transition<S, E, C>>> transitions;
+    /** The event to transition map keyed by {@link #key(Object)}. */
+    protected final ConcurrentMap<Object, TransitionSet<S, E, C>> transitions;
 
     /**
      * Constructs a new state machine structure base from the specified internal state factory and transition factory.
@@ -39,8 +51,8 @@ public class StateMachineStructureBase<S, E, C> implements StateMachineStructure
                                         TransitionFactory<S, E, C> transitionFactory) {
         this.internalStateFactory = internalStateFactory;
         this.transitionFactory = transitionFactory;
-        this.states = Collections.synchronizedMap(new HashMap<>());
-        this.transitions = Collections.synchronizedMap(new HashMap<>());
+        this.states = new ConcurrentHashMap<>();
+        this.transitions = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -50,7 +62,10 @@ public class StateMachineStructureBase<S, E, C> implements StateMachineStructure
 
     @Override
     public InternalState<S, E, C> getState(S state) {
-        return states.computeIfAbsent(state, internalStateFactory::create);
+        // Try a plain get first since computeIfAbsent may lock even when the key is present
+        final InternalState<S, E, C> internalState = states.get(key(state));
+        return internalState != null ? internalState
+                                     : states.computeIfAbsent(key(state), k -> internalStateFactory.create(state));
     }
 
     @Override
@@ -60,21 +75,77 @@ public class StateMachineStructureBase<S, E, C> implements StateMachineStructure
 
     @Override
     public Set<Transition<S, E, C>> getTransitions(E event) {
-        return Collections.unmodifiableSet(getTransitionsUnsafe(event));
+        final Set<Transition<S, E, C>> eventTransitions = transitions.get(key(event));
+        return eventTransitions != null ? Collections.unmodifiableSet(eventTransitions) : Collections.emptySet();
     }
 
     @Override
     public void addTransition(E event, Transition<S, E, C> transition) {
-        getTransitionsUnsafe(event).add(transition);
+        transitions.computeIfAbsent(key(event), k -> new TransitionSet<>()).add(transition);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public StateMachineStructure<S, E, C> compile() {
+        final Map<S, InternalState<S, E, C>> statesCopy = new HashMap<>();
+        states.values().forEach(internalState -> statesCopy.put(internalState.getState(), internalState));
+        final Map<E, Set<Transition<S, E, C>>> transitionsCopy = new HashMap<>();
+        transitions.forEach((event, eventTransitions) -> transitionsCopy.put(
+                event != NULL_KEY ? (E) event : null, eventTransitions));
+        return new CompiledStateMachineStructure<>(internalStateFactory, transitionFactory, statesCopy,
+                                                   transitionsCopy);
+    }
+
+    /**
+     * Returns the key of the specified state or event in the concurrent maps.
+     *
+     * @param value the state or event.
+     * @return the key.
+     */
+    protected static Object key(Object value) {
+        return value != null ? value : NULL_KEY;
     }
 
     /**
-     * Returns a modifiable set of transitions associated with the specified event.
+     * An insertion ordered set of the transitions of an event.  Transitions can be read and iterated without locking
+     * while they are appended.  Adding a transition only locks the set and takes constant time, unlike a copy-on-write
+     * set which copies all the transitions of the event.
      *
-     * @param event the state machine event.
-     * @return the associated transitions.
+     * @param <S> the class type of the states.
+     * @param <E> the class type of the events.
+     * @param <C> the class type of the context.
+     * @since 1.3.0
      */
-    private Set<Transition<S, E, C>> getTransitionsUnsafe(E event) {
-        return transitions.computeIfAbsent(event, e -> Collections.synchronizedSet(new HashSet<>()));
+    protected static class TransitionSet<S, E, C> extends AbstractSet<Transition<S, E, C>> {
+
+        /** The transitions in insertion order. */
+        private final ConcurrentLinkedQueue<Transition<S, E, C>> ordered = new ConcurrentLinkedQueue<>();
+
+        /** The transitions for membership checks. */
+        private final Set<Transition<S, E, C>> members = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public synchronized boolean add(Transition<S, E, C> transition) {
+            if (!members.add(transition)) {
+                return false;
+            }
+            ordered.add(transition);
+            return true;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return members.contains(o);
+        }
+
+        @Override
+        public Iterator<Transition<S, E, C>> iterator() {
+            return Collections.unmodifiableCollection(ordered).iterator();
+        }
+
+        @Override
+        public int size() {
+            return members.size();
+        }
     }
 }
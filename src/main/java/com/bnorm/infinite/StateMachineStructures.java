@@ -20,4 +20,21 @@ public final class StateMachineStructures {
         StateMachineStructureFactory<S, E, C> structureFactory = new StateMachineStructureFactoryBase<>();
         return structureFactory.create();
     }
+
+    /**
+     * Creates a state machine structure for the specified enum state and event types.
+     *
+     * @param stateType the class type of the states.
+     * @param eventType the class type of the events.
+     * @param <S> the class type of the states.
+     * @param <E> the class type of the events.
+     * @param <C> the class type of the context.
+     * @return a new state machine structure.
+     */
+    public static <S extends Enum<S>, E extends Enum<E>, C> StateMachineStructure<S, E, C> create(Class<S> stateType,
+                                                                                              Class<E> eventType) {
+        StateMachineStructureFactory<S, E, C> structureFactory;
+        structureFactory = new EnumStateMachineStructureFactory<>(stateType, eventType);
+        return structureFactory.create();
+    }
 }
@@ -1,5 +1,8 @@
 package com.bnorm.infinite;
 
+import java.util.Collection;
+import java.util.EnumSet;
+
 /**
  * Utility class for state machines.
  *
@@ -38,4 +41,43 @@ public final class StateMachines {
                                                          C context) {
         return new StateMachineBase<>(structure, starting, context);
     }
+
+    /**
+     * Creates a default state machine fleet with the specified state machine structure, possible states, number of
+     * instances, starting state, and shared context.
+     *
+     * @param structure the state machine structure.
+     * @param states the possible states of the instances.
+     * @param size the number of instances.
+     * @param starting the starting state of every instance.
+     * @param context the context shared by all instances.
+     * @param <S> the class type of the states.
+     * @param <E> the class type of the events.
+     * @param <C> the class type of the context.
+     * @return a new state machine fleet.
+     */
+    public static <S, E, C> StateMachineFleet<S, E, C> createFleet(StateMachineStructure<S, E, C> structure,
+                                                                   Collection<? extends S> states, int size,
+                                                                   S starting, C context) {
+        return new StateMachineFleetBase<>(structure, states, size, starting, context);
+    }
+
+    /**
+     * Creates a default state machine fleet with the specified state machine structure, enum state type, number of
+     * instances, starting state, and shared context.  Every constant of the enum is a possible state.
+     *
+     * @param structure the state machine structure.
+     * @param stateType the class type of the states.
+     * @param size the number of instances.
+     * @param starting the starting state of every instance.
+     * @param context the context shared by all instances.
+     * @param <S> the class type of the states.
+     * @param <E> the class type of the events.
+     * @param <C> the class type of the context.
+     * @return a new state machine fleet.
+     */
+    public static <S extends Enum<S>, E, C> StateMachineFleet<S, E, C> createFleet(
+            StateMachineStructure<S, E, C> structure, Class<S> stateType, int size, S starting, C context) {
+        return createFleet(structure, EnumSet.allOf(stateType), size, starting, context);
+    }
 }
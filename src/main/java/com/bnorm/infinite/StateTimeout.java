@@ -0,0 +1,58 @@
+package com.bnorm.infinite;
+
+import java.time.Duration;
+
+/**
+ * The timeout of a state.  When a state with a timeout is entered, a timer is armed and, if the state has not been
+ * exited when the timeout expires, the timeout transition is performed.  Timeouts are only performed by asynchronous
+ * state machines, which have a thread to perform the transition when the timeout expires.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @param <C> the class type of the context.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class StateTimeout<S, E, C> {
+
+    /** The duration the state may be in before timing out. */
+    protected final Duration timeout;
+
+    /** The transition performed when the timeout expires. */
+    protected final Transition<S, E, C> transition;
+
+    /**
+     * Constructs a new state timeout from the specified duration and the transition performed when the timeout
+     * expires.
+     *
+     * @param timeout the duration the state may be in before timing out.
+     * @param transition the transition performed when the timeout expires.
+     * @throws StateMachineException if the timeout is negative.
+     */
+    public StateTimeout(Duration timeout, Transition<S, E, C> transition) {
+        if (timeout.isNegative()) {
+            throw new StateMachineException("State timeout must not be negative [" + timeout + "]");
+        }
+        this.timeout = timeout;
+        this.transition = transition;
+    }
+
+    /**
+     * Returns the duration the state may be in before timing out.
+     *
+     * @return the timeout duration.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Returns the transition performed when the timeout expires.  The transition is performed without an event, so
+     * actions and listeners are given a {@code null} event.
+     *
+     * @return the timeout transition.
+     */
+    public Transition<S, E, C> getTransition() {
+        return transition;
+    }
+}
@@ -61,7 +61,11 @@ public interface Transition<S, E, C> {
      * Copy method following the prototype design pattern.  This is required to create a constant version of the
      * transition for use outside of the state machine structure.
      *
-     * @return a constant copy of this transition.
+     * <p>If the transition is immutable and its destination is already constant, the transition itself may be returned
+     * instead of a copy.  The result may therefore be the instance shared by the state machine structure, and callers
+     * should not rely on its identity or modify it.
+     *
+     * @return a constant copy of this transition, or this transition if it is already constant.
      */
     Transition<S, E, C> copy();
 }
@@ -61,14 +61,48 @@ public class TransitionBase<S, E, C> implements Transition<S, E, C> {
         return action;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>If the destination of the transition is already constant, the transition itself is returned.
+     */
     @Override
     public Transition<S, E, C> copy() {
-        S constantDestination = destination.get();
-        return new TransitionBase<>(source, () -> constantDestination, guard, action);
+        if (destination instanceof ConstantDestination) {
+            return this;
+        }
+        return new TransitionBase<>(source, new ConstantDestination<>(destination.get()), guard, action);
     }
 
     @Override
     public String toString() {
         return "TransitionBase[" + getSource() + "->" + getDestination() + "]";
     }
+
+    /**
+     * A destination state supplier which always returns the same state.  Transitions created with a constant
+     * destination do not need to be copied before they are used.
+     *
+     * @param <S> the class type of the states.
+     * @since 1.3.0
+     */
+    public static final class ConstantDestination<S> implements Supplier<S> {
+
+        /** The destination state. */
+        private final S destination;
+
+        /**
+         * Constructs a new constant destination state supplier for the specified state.
+         *
+         * @param destination the destination state.
+         */
+        public ConstantDestination(S destination) {
+            this.destination = destination;
+        }
+
+        @Override
+        public S get() {
+            return destination;
+        }
+    }
 }
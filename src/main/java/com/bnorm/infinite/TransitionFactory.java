@@ -21,7 +21,7 @@ public interface TransitionFactory<S, E, C> {
      * @return a transition.
      */
     default Transition<S, E, C> create(S source, S destination) {
-        return create(source, () -> destination);
+        return create(source, destination, TransitionGuard.none(), Action.noAction());
     }
 
     /**
@@ -44,7 +44,7 @@ public interface TransitionFactory<S, E, C> {
      * @return a transition.
      */
     default Transition<S, E, C> create(S source, S destination, TransitionGuard<? super C> guard) {
-        return create(source, () -> destination, guard, Action.noAction());
+        return create(source, destination, guard, Action.noAction());
     }
 
     /**
@@ -68,7 +68,7 @@ public interface TransitionFactory<S, E, C> {
      * @return a transition.
      */
     default Transition<S, E, C> create(S source, S destination, Action<? super S, ? super E, ? super C> action) {
-        return create(source, () -> destination, action);
+        return create(source, destination, TransitionGuard.none(), action);
     }
 
     /**
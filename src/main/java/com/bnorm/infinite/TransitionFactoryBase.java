@@ -13,6 +13,12 @@ import java.util.function.Supplier;
  */
 public class TransitionFactoryBase<S, E, C> implements TransitionFactory<S, E, C> {
 
+    @Override
+    public Transition<S, E, C> create(S source, S destination, TransitionGuard<? super C> guard,
+                                      Action<? super S, ? super E, ? super C> action) {
+        return create(source, new TransitionBase.ConstantDestination<>(destination), guard, action);
+    }
+
     @Override
     public Transition<S, E, C> create(S source, Supplier<? extends S> destination, TransitionGuard<? super C> guard,
                                       Action<? super S, ? super E, ? super C> action) {
@@ -0,0 +1,60 @@
+package com.bnorm.infinite;
+
+import java.util.Objects;
+
+/**
+ * Simple interface that represents a filter of the transitions a transition listener is notified of.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+@FunctionalInterface
+public interface TransitionFilter<S, E> {
+
+    /**
+     * Returns a transition filter which accepts transitions caused by the specified event.
+     *
+     * @param event the event.
+     * @param <S> the class type of the states.
+     * @param <E> the class type of the events.
+     * @return a transition filter of the event.
+     */
+    static <S, E> TransitionFilter<S, E> forEvent(E event) {
+        return (fired, transition) -> Objects.equals(event, fired);
+    }
+
+    /**
+     * Returns a transition filter which accepts transitions from the specified source state.
+     *
+     * @param source the source state.
+     * @param <S> the class type of the states.
+     * @param <E> the class type of the events.
+     * @return a transition filter of the source state.
+     */
+    static <S, E> TransitionFilter<S, E> fromState(S source) {
+        return (fired, transition) -> Objects.equals(source, transition.getSource());
+    }
+
+    /**
+     * Returns a transition filter which accepts transitions to the specified destination state.
+     *
+     * @param destination the destination state.
+     * @param <S> the class type of the states.
+     * @param <E> the class type of the events.
+     * @return a transition filter of the destination state.
+     */
+    static <S, E> TransitionFilter<S, E> toState(S destination) {
+        return (fired, transition) -> Objects.equals(destination, transition.getDestination());
+    }
+
+    /**
+     * If the listener should be notified of the specified transition caused by the specified event.
+     *
+     * @param event the event that caused the transition.
+     * @param transition the state transition.
+     * @return if the listener should be notified.
+     */
+    boolean accept(E event, Transition<? extends S, ? extends E, ?> transition);
+}
@@ -0,0 +1,204 @@
+package com.bnorm.infinite;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of the transition listeners of a state machine.  The listeners are stored in a separate array
+ * for each transition stage, so notifying the listeners of a stage is an indexed loop over only the listeners
+ * interested in that stage.  Adding a listener creates a new snapshot, which allows the snapshot to be replaced
+ * copy-on-write while events are fired on other threads.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @param <C> the class type of the context.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public final class TransitionListeners<S, E, C> {
+
+    /** All transition stages indexed by their ordinal. */
+    private static final TransitionStage[] STAGES = TransitionStage.values();
+
+    /** The snapshot without any transition listeners. */
+    @SuppressWarnings("unchecked")
+    private static final TransitionListeners<?, ?, ?> EMPTY = new TransitionListeners<>(
+            new TransitionListener[STAGES.length][0], new TransitionFilter[STAGES.length][0]);
+
+    /** The transition listeners of each stage indexed by the ordinal of the stage. */
+    private final TransitionListener<? super S, ? super E, ? super C>[][] listeners;
+
+    /** The filters of the listeners of each stage or {@code null} for listeners which are not filtered. */
+    private final TransitionFilter<? super S, ? super E>[][] filters;
+
+    /**
+     * Constructs a new snapshot of the specified transition listeners and filters of each stage.
+     *
+     * @param listeners the transition listeners of each stage.
+     * @param filters the filters of the listeners of each stage.
+     */
+    private TransitionListeners(TransitionListener<? super S, ? super E, ? super C>[][] listeners,
+                                TransitionFilter<? super S, ? super E>[][] filters) {
+        this.listeners = listeners;
+        this.filters = filters;
+    }
+
+    /**
+     * Returns the snapshot without any transition listeners cast to the required parameter types.
+     *
+     * @param <S> the class type of the states.
+     * @param <E> the class type of the events.
+     * @param <C> the class type of the context.
+     * @return the empty snapshot.
+     */
+    public static <S, E, C> TransitionListeners<S, E, C> empty() {
+        @SuppressWarnings("unchecked")
+        TransitionListeners<S, E, C> empty = (TransitionListeners<S, E, C>) EMPTY;
+        return empty;
+    }
+
+    /**
+     * Returns a snapshot with the specified transition listener added for the specified stages.  If the listener has
+     * already been added with the same stages and filter, this snapshot is returned unchanged.  If the listener has
+     * already been added with different stages or a different filter, the earlier registration is replaced and the
+     * listener is notified after the other listeners of its stages.
+     *
+     * @param stages the stages the listener is notified of.
+     * @param filter the filter of the transitions the listener is notified of or {@code null}.
+     * @param listener the new transition listener.
+     * @return the new snapshot.
+     * @throws StateMachineException if no stages are specified.
+     */
+    public TransitionListeners<S, E, C> with(Set<TransitionStage> stages, TransitionFilter<? super S, ? super E> filter,
+                                             TransitionListener<? super S, ? super E, ? super C> listener) {
+        if (stages.isEmpty()) {
+            throw new StateMachineException("Transition listener must be notified of at least one stage");
+        }
+        if (isRegistered(stages, filter, listener)) {
+            return this;
+        }
+
+        final TransitionListeners<S, E, C> without = without(listener);
+        final TransitionListener<? super S, ? super E, ? super C>[][] newListeners = without.listeners.clone();
+        final TransitionFilter<? super S, ? super E>[][] newFilters = without.filters.clone();
+        for (TransitionStage stage : stages) {
+            final int i = stage.ordinal();
+            final int length = newListeners[i].length;
+            newListeners[i] = Arrays.copyOf(newListeners[i], length + 1);
+            newListeners[i][length] = listener;
+            newFilters[i] = Arrays.copyOf(newFilters[i], length + 1);
+            newFilters[i][length] = filter;
+        }
+        return new TransitionListeners<>(newListeners, newFilters);
+    }
+
+    /**
+     * Returns if the specified transition listener has been added for exactly the specified stages with the specified
+     * filter.
+     *
+     * @param stages the stages the listener is notified of.
+     * @param filter the filter of the transitions the listener is notified of or {@code null}.
+     * @param listener the transition listener.
+     * @return if the listener has already been added the same way.
+     */
+    private boolean isRegistered(Set<TransitionStage> stages, TransitionFilter<?, ?> filter,
+                                 TransitionListener<?, ?, ?> listener) {
+        for (int i = 0; i < STAGES.length; i++) {
+            final int index = indexOf(listeners[i], listener);
+            final boolean registered = index >= 0;
+            if (registered != stages.contains(STAGES[i])) {
+                return false;
+            } else if (registered && !Objects.equals(filters[i][index], filter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a snapshot without the specified transition listener.  If the listener has not been added, this
+     * snapshot is returned unchanged.
+     *
+     * @param listener the transition listener.
+     * @return the snapshot without the listener.
+     */
+    private TransitionListeners<S, E, C> without(TransitionListener<?, ?, ?> listener) {
+        if (!contains(listener)) {
+            return this;
+        }
+        final TransitionListener<? super S, ? super E, ? super C>[][] newListeners = listeners.clone();
+        final TransitionFilter<? super S, ? super E>[][] newFilters = filters.clone();
+        for (int i = 0; i < STAGES.length; i++) {
+            final int index = indexOf(listeners[i], listener);
+            if (index >= 0) {
+                final int length = listeners[i].length;
+                newListeners[i] = Arrays.copyOf(listeners[i], length - 1);
+                System.arraycopy(listeners[i], index + 1, newListeners[i], index, length - index - 1);
+                newFilters[i] = Arrays.copyOf(filters[i], length - 1);
+                System.arraycopy(filters[i], index + 1, newFilters[i], index, length - index - 1);
+            }
+        }
+        return new TransitionListeners<>(newListeners, newFilters);
+    }
+
+    /**
+     * Returns the index of the specified transition listener in the specified listeners of a stage.
+     *
+     * @param stageListeners the listeners of a stage.
+     * @param listener the transition listener.
+     * @return the index of the listener or {@code -1} if the stage does not have the listener.
+     */
+    private static int indexOf(TransitionListener<?, ?, ?>[] stageListeners, TransitionListener<?, ?, ?> listener) {
+        for (int i = 0; i < stageListeners.length; i++) {
+            if (stageListeners[i].equals(listener)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns if the specified transition listener is notified of any stage.
+     *
+     * @param listener the transition listener.
+     * @return if the listener has been added.
+     */
+    public boolean contains(TransitionListener<?, ?, ?> listener) {
+        for (TransitionListener<? super S, ? super E, ? super C>[] stageListeners : listeners) {
+            if (indexOf(stageListeners, listener) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of transition listeners notified of the specified stage.
+     *
+     * @param stage the transition stage.
+     * @return the number of listeners of the stage.
+     */
+    public int size(TransitionStage stage) {
+        return listeners[stage.ordinal()].length;
+    }
+
+    /**
+     * Notifies the transition listeners of the specified stage whose filter accepts the transition.
+     *
+     * @param stage the stage of the transition.
+     * @param event the event that caused the transition.
+     * @param transition the transition.
+     * @param context the state machine context.
+     */
+    public void notifyListeners(TransitionStage stage, E event, Transition<S, E, C> transition, C context) {
+        final TransitionListener<? super S, ? super E, ? super C>[] stageListeners = listeners[stage.ordinal()];
+        final TransitionFilter<? super S, ? super E>[] stageFilters = filters[stage.ordinal()];
+        for (int i = 0; i < stageListeners.length; i++) {
+            final TransitionFilter<? super S, ? super E> filter = stageFilters[i];
+            if (filter == null || filter.accept(event, transition)) {
+                stageListeners[i].stateTransition(stage, event, transition, context);
+            }
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.bnorm.infinite.async;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import com.bnorm.infinite.Action;
 import com.bnorm.infinite.Transition;
@@ -17,9 +17,25 @@ import com.bnorm.infinite.Transition;
  */
 public class AsyncActionFactoryBase<S, E, C> implements AsyncActionFactory<S, E, C> {
 
+    /** The default backing executor, which uses virtual threads when they are supported. */
+    protected static final ExecutorService EXECUTOR = AsyncExecutors.newDefaultExecutor("AsyncAction");
+
     /** The backing executor. */
-    protected static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
-            new NamedThreadFactory("AsyncAction"));
+    protected final Executor executor;
+
+    /**
+     * Constructs a new asynchronous action factory which executes actions on the specified executor.
+     *
+     * @param executor the backing executor.
+     */
+    public AsyncActionFactoryBase(Executor executor) {
+        this.executor = executor;
+    }
+
+    /** Constructs a new asynchronous action factory which executes actions on the default executor. */
+    public AsyncActionFactoryBase() {
+        this(EXECUTOR);
+    }
 
     @Override
     public Action<S, E, C> create(Action<? super S, ? super E, ? super C> action) {
@@ -27,7 +43,7 @@ public class AsyncActionFactoryBase<S, E, C> implements AsyncActionFactory<S, E,
             @Override
             public void perform(S state, E event, Transition<? extends S, ? extends E, ? extends C> transition,
                                 C context) {
-                EXECUTOR.submit(() -> action.perform(state, event, transition, context));
+                executor.execute(() -> action.perform(state, event, transition, context));
             }
         };
     }
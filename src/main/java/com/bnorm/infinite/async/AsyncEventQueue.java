@@ -0,0 +1,79 @@
+package com.bnorm.infinite.async;
+
+/**
+ * The queue of events waiting to be processed by an asynchronous state machine.  The queue has two lanes: injected
+ * events and submitted events.  Injected events are always processed before any submitted events and submitted events
+ * are processed in the order they were submitted.
+ *
+ * <p>Any number of threads may submit and inject events but only a single thread, the thread running the asynchronous
+ * state machine, may poll events.
+ *
+ * @param <E> the class type of the events.
+ * @param <R> the class type of the result of the events.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public interface AsyncEventQueue<E, R> {
+
+    /**
+     * Adds the specified event task to the end of the submitted events.  If the queue is full, what happens depends on
+     * the {@link AsyncOverflowPolicy} of the queue.  The returned task is the task that will complete with the result
+     * of the submitted event, which may not be the specified task if the event was merged with a waiting event.  The
+     * task of a waiting event is shared by every submission merged with it, so cancelling it cancels the event for all
+     * of them.
+     *
+     * @param task the submitted event task.
+     * @param mayBlock if the submitting thread may be blocked waiting for room in the queue.
+     * @return the task which completes with the result of the event.
+     * @throws com.bnorm.infinite.StateMachineException if the queue is full and the event could not be submitted.
+     */
+    AsyncEventTask<E, R> submit(AsyncEventTask<E, R> task, boolean mayBlock);
+
+    /**
+     * Adds the specified event task to the end of the submitted events even if the queue is full.  The task goes over
+     * the capacity of the queue instead of being merged with a waiting event or handled by the {@link
+     * AsyncOverflowPolicy}, so it is never blocked, rejected, or dropped.  This is used for tasks queued by expired
+     * timers, which must never block or fail the worker thread of the timing wheel.
+     *
+     * @param task the submitted event task.
+     */
+    void overdraw(AsyncEventTask<E, R> task);
+
+    /**
+     * Adds the specified event task to the end of the injected events.  Injected events are never limited by the
+     * capacity of the queue.
+     *
+     * @param task the injected event task.
+     */
+    void inject(AsyncEventTask<E, R> task);
+
+    /**
+     * Removes and returns the next event task to process.  Injected events are returned before submitted events.  If
+     * the queue is empty, {@code null} is returned.
+     *
+     * @return the next event task or {@code null}.
+     */
+    AsyncEventTask<E, R> poll();
+
+    /**
+     * Returns {@code true} if there are no event tasks in the queue, {@code false} otherwise.
+     *
+     * @return if the queue is empty.
+     */
+    boolean isEmpty();
+
+    /**
+     * Returns the number of event tasks in the queue.
+     *
+     * @return the number of queued event tasks.
+     */
+    int size();
+
+    /**
+     * Returns the maximum number of submitted event tasks the queue holds.  An unbounded queue returns {@link
+     * Integer#MAX_VALUE}.
+     *
+     * @return the capacity of the queue.
+     */
+    int getCapacity();
+}
@@ -0,0 +1,316 @@
+package com.bnorm.infinite.async;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import com.bnorm.infinite.StateMachineException;
+
+/**
+ * The base implementation of an asynchronous event queue.  Each lane is a lock-free linked queue so producers never
+ * block each other or the thread processing the events.
+ *
+ * <p>The queue may be bounded, in which case the number of submitted events is limited by the capacity of the queue
+ * and the {@link AsyncOverflowPolicy} decides what happens to events submitted while the queue is full.  Injected
+ * events are never limited by the capacity.
+ *
+ * <p>Events matching the coalescible predicate, such as idempotent refresh or tick events, are coalesced: submitting
+ * such an event while an equal event is still waiting in the queue returns the waiting task instead of queueing
+ * another.  Once the waiting event is taken from the queue to be processed, equal events are queued again.
+ * Coalescible events must be usable as hash keys and {@code null} events are never coalesced.  Only {@linkplain
+ * AsyncEventTask#isMergeable() mergeable} tasks, which just fire their event to the state machine, are coalesced, so
+ * tasks such as delayed events scoped to a state are never merged with a plain submitted event.
+ *
+ * <p>Merged submissions share the task of the waiting event, so cancelling the returned task cancels the event for
+ * every submission merged with it.
+ *
+ * @param <E> the class type of the events.
+ * @param <R> the class type of the result of the events.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class AsyncEventQueueBase<E, R> implements AsyncEventQueue<E, R> {
+
+    /** The injected event tasks. */
+    protected final Queue<AsyncEventTask<E, R>> injected;
+
+    /** The submitted event tasks. */
+    protected final Queue<AsyncEventTask<E, R>> submitted;
+
+    /** The number of queued event tasks. */
+    protected final AtomicInteger size;
+
+    /** The maximum number of submitted event tasks. */
+    protected final int capacity;
+
+    /** The policy for events submitted while the queue is full. */
+    protected final AsyncOverflowPolicy policy;
+
+    /** The permits for submitted event tasks or {@code null} if the queue is unbounded. */
+    protected final Permits permits;
+
+    /** The predicate of events which are coalesced with an equal waiting event. */
+    protected final Predicate<? super E> coalescible;
+
+    /** The waiting event tasks of coalescible events. */
+    protected final ConcurrentMap<E, AsyncEventTask<E, R>> pending;
+
+    /**
+     * Constructs a new, empty, bounded asynchronous event queue with the specified capacity, overflow policy, and
+     * coalescible event predicate.
+     *
+     * @param capacity the maximum number of submitted event tasks.
+     * @param policy the policy for events submitted while the queue is full.
+     * @param coalescible the predicate of events which are coalesced with an equal waiting event.
+     * @throws StateMachineException if the capacity is not positive.
+     */
+    public AsyncEventQueueBase(int capacity, AsyncOverflowPolicy policy, Predicate<? super E> coalescible) {
+        if (capacity < 1) {
+            throw new StateMachineException("Event queue capacity must be positive [" + capacity + "]");
+        }
+        this.injected = new ConcurrentLinkedQueue<>();
+        this.submitted = new ConcurrentLinkedQueue<>();
+        this.size = new AtomicInteger();
+        this.capacity = capacity;
+        this.policy = policy;
+        this.permits = capacity != Integer.MAX_VALUE ? new Permits(capacity) : null;
+        this.coalescible = coalescible;
+        this.pending = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Constructs a new, empty, bounded asynchronous event queue with the specified capacity and overflow policy.
+     *
+     * @param capacity the maximum number of submitted event tasks.
+     * @param policy the policy for events submitted while the queue is full.
+     * @throws StateMachineException if the capacity is not positive.
+     */
+    public AsyncEventQueueBase(int capacity, AsyncOverflowPolicy policy) {
+        this(capacity, policy, event -> false);
+    }
+
+    /**
+     * Constructs a new, empty, unbounded asynchronous event queue.
+     */
+    public AsyncEventQueueBase() {
+        this(Integer.MAX_VALUE, AsyncOverflowPolicy.Block);
+    }
+
+    @Override
+    public AsyncEventTask<E, R> submit(AsyncEventTask<E, R> task, boolean mayBlock) {
+        final E event = task.getEvent();
+        final boolean coalesce = event != null && task.isMergeable() && coalescible.test(event);
+        if (coalesce) {
+            final AsyncEventTask<E, R> waiting = pending.putIfAbsent(event, task);
+            if (waiting != null) {
+                if (!waiting.isDone()) {
+                    return waiting;
+                } else if (!pending.replace(event, waiting, task)) {
+                    // Lost the race to replace the cancelled task so try again.
+                    return submit(task, mayBlock);
+                }
+            }
+        }
+
+        if (permits != null && !permits.tryAcquire()) {
+            final AsyncEventTask<E, R> overflow;
+            try {
+                overflow = overflow(task, mayBlock);
+            } catch (RuntimeException e) {
+                if (coalesce) {
+                    pending.remove(event, task);
+                }
+                throw e;
+            }
+            if (overflow != null) {
+                if (coalesce) {
+                    pending.remove(event, task);
+                }
+                return overflow;
+            }
+        }
+        size.incrementAndGet();
+        submitted.add(task);
+        return task;
+    }
+
+    @Override
+    public void overdraw(AsyncEventTask<E, R> task) {
+        task.setOverdrawn();
+        if (permits != null && !permits.tryAcquire()) {
+            permits.overdraw();
+        }
+        size.incrementAndGet();
+        submitted.add(task);
+    }
+
+    /**
+     * Handles the specified event task submitted while the queue is full according to the overflow policy.  If the
+     * event task should be added to the queue, a permit has been acquired for it and {@code null} is returned.
+     * Otherwise, the task which completes with the result of the event is returned.
+     *
+     * @param task the submitted event task.
+     * @param mayBlock if the submitting thread may be blocked waiting for room in the queue.
+     * @return the task which completes with the result of the event or {@code null} if the task should be queued.
+     */
+    protected AsyncEventTask<E, R> overflow(AsyncEventTask<E, R> task, boolean mayBlock) {
+        switch (policy) {
+            case Block:
+                if (!mayBlock) {
+                    // Blocking the thread processing events would dead lock so go over capacity instead.
+                    permits.overdraw();
+                    return null;
+                }
+                try {
+                    permits.acquire();
+                    return null;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new StateMachineException(e);
+                }
+
+            case DropOldest:
+                while (!permits.tryAcquire()) {
+                    final AsyncEventTask<E, R> oldest = oldestDroppable();
+                    if (oldest == null) {
+                        if (!submitted.isEmpty()) {
+                            // Only overdrawn tasks, which are never dropped, are waiting so drop the new task instead.
+                            task.completeExceptionally(dropped(task));
+                            return task;
+                        }
+                    } else if (submitted.remove(oldest)) {
+                        // The permit of the oldest task is handed over to the new task.
+                        removed(oldest);
+                        oldest.completeExceptionally(dropped(oldest));
+                        return null;
+                    }
+                }
+                return null;
+
+            case DropNewest:
+                task.completeExceptionally(dropped(task));
+                return task;
+
+            case Coalesce:
+                if (task.isMergeable()) {
+                    for (AsyncEventTask<E, R> pending : submitted) {
+                        if (pending.isMergeable() && !pending.isDone() &&
+                                Objects.equals(pending.getEvent(), task.getEvent())) {
+                            return pending;
+                        }
+                    }
+                }
+                // Intentional fall through as there was no waiting event to merge with.
+
+            case Fail:
+            default:
+                throw new StateMachineException("Event queue is full [" + capacity + "] submitting [" +
+                                                        task.getEvent() + "]");
+        }
+    }
+
+    /**
+     * Returns the oldest submitted event task which may be dropped from the queue.  Overdrawn tasks, such as the tasks
+     * of expired timers, are never dropped.
+     *
+     * @return the oldest droppable task or {@code null} if there is none.
+     */
+    private AsyncEventTask<E, R> oldestDroppable() {
+        for (AsyncEventTask<E, R> waiting : submitted) {
+            if (!waiting.isOverdrawn()) {
+                return waiting;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates the exception used to complete an event task dropped from the queue.
+     *
+     * @param task the dropped event task.
+     * @return the exception.
+     */
+    private StateMachineException dropped(AsyncEventTask<E, R> task) {
+        return new StateMachineException("Event [" + task.getEvent() + "] dropped from the full event queue [" +
+                                                 capacity + "]");
+    }
+
+    @Override
+    public void inject(AsyncEventTask<E, R> task) {
+        size.incrementAndGet();
+        injected.add(task);
+    }
+
+    @Override
+    public AsyncEventTask<E, R> poll() {
+        AsyncEventTask<E, R> task = injected.poll();
+        if (task == null) {
+            task = submitted.poll();
+            if (task != null && permits != null) {
+                permits.release();
+            }
+        }
+        if (task != null) {
+            removed(task);
+        }
+        return task;
+    }
+
+    /**
+     * Updates the size and the waiting coalescible event tasks after the specified task is removed from the queue.
+     *
+     * @param task the removed event task.
+     */
+    private void removed(AsyncEventTask<E, R> task) {
+        size.decrementAndGet();
+        final E event = task.getEvent();
+        if (event != null) {
+            pending.remove(event, task);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return injected.isEmpty() && submitted.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * The permits for submitted event tasks which may be overdrawn when a task is queued over capacity.
+     */
+    protected static final class Permits extends Semaphore {
+
+        /** The serial version UID. */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs new permits for the specified capacity.
+         *
+         * @param capacity the maximum number of submitted event tasks.
+         */
+        Permits(int capacity) {
+            super(capacity);
+        }
+
+        /**
+         * Takes a permit even if none are available.  The permits stay overdrawn until enough tasks are polled.
+         */
+        void overdraw() {
+            reducePermits(1);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.bnorm.infinite.async;
+
+import java.util.Optional;
+
+import com.bnorm.infinite.Transition;
+
+/**
+ * A factory interface for asynchronous event queues.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @param <C> the class type of the context.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public interface AsyncEventQueueFactory<S, E, C> {
+
+    /**
+     * Creates an empty asynchronous event queue.
+     *
+     * @return an asynchronous event queue.
+     */
+    AsyncEventQueue<E, Optional<Transition<S, E, C>>> create();
+}
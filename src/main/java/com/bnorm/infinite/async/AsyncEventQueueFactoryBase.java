@@ -0,0 +1,80 @@
+package com.bnorm.infinite.async;
+
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import com.bnorm.infinite.StateMachineException;
+import com.bnorm.infinite.Transition;
+
+/**
+ * The base implementation of an asynchronous event queue factory.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @param <C> the class type of the context.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class AsyncEventQueueFactoryBase<S, E, C> implements AsyncEventQueueFactory<S, E, C> {
+
+    /** The maximum number of submitted events of created queues. */
+    protected final int capacity;
+
+    /** The policy for events submitted while created queues are full. */
+    protected final AsyncOverflowPolicy policy;
+
+    /** The predicate of events which are coalesced with an equal waiting event. */
+    protected final Predicate<? super E> coalescible;
+
+    /**
+     * Constructs a new asynchronous event queue factory which creates bounded queues with the specified capacity,
+     * overflow policy, and coalescible event predicate.
+     *
+     * @param capacity the maximum number of submitted events.
+     * @param policy the policy for events submitted while the queue is full.
+     * @param coalescible the predicate of events which are coalesced with an equal waiting event.
+     * @throws StateMachineException if the capacity is not positive.
+     */
+    public AsyncEventQueueFactoryBase(int capacity, AsyncOverflowPolicy policy, Predicate<? super E> coalescible) {
+        if (capacity < 1) {
+            throw new StateMachineException("Event queue capacity must be positive [" + capacity + "]");
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+        this.coalescible = coalescible;
+    }
+
+    /**
+     * Constructs a new asynchronous event queue factory which creates bounded queues with the specified capacity and
+     * overflow policy.
+     *
+     * @param capacity the maximum number of submitted events.
+     * @param policy the policy for events submitted while the queue is full.
+     * @throws StateMachineException if the capacity is not positive.
+     */
+    public AsyncEventQueueFactoryBase(int capacity, AsyncOverflowPolicy policy) {
+        this(capacity, policy, event -> false);
+    }
+
+    /**
+     * Constructs a new asynchronous event queue factory which creates unbounded queues with the specified coalescible
+     * event predicate.
+     *
+     * @param coalescible the predicate of events which are coalesced with an equal waiting event.
+     */
+    public AsyncEventQueueFactoryBase(Predicate<? super E> coalescible) {
+        this(Integer.MAX_VALUE, AsyncOverflowPolicy.Block, coalescible);
+    }
+
+    /**
+     * Constructs a new asynchronous event queue factory which creates unbounded queues.
+     */
+    public AsyncEventQueueFactoryBase() {
+        this(event -> false);
+    }
+
+    @Override
+    public AsyncEventQueue<E, Optional<Transition<S, E, C>>> create() {
+        return new AsyncEventQueueBase<>(capacity, policy, coalescible);
+    }
+}
@@ -1,23 +1,21 @@
 package com.bnorm.infinite.async;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.RunnableFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 /**
- * The asynchronous event task is how events are processed in an asynchronous state machine.  This is how events or
- * sorted in the priority queue that defines the order by which events are processed.  This task can be treated in
- * exactly the same way as a RunnableFuture thanks to the delegation to a FutureTask.
+ * The asynchronous event task is how events are processed in an asynchronous state machine.  The task is also the
+ * CompletableFuture of the result of the event, so callers can either wait for the result or chain dependent stages on
+ * its completion without blocking a thread.
  *
  * @param <E> the class type of the events.
  * @param <R> the class type of the result of the event.
  * @author Brian Norman
  * @since 1.1.0
  */
-public class AsyncEventTask<E, R> implements RunnableFuture<R>, Comparable<AsyncEventTask<E, R>> {
+public class AsyncEventTask<E, R> extends CompletableFuture<R>
+        implements RunnableFuture<R>, Comparable<AsyncEventTask<E, R>> {
 
     /** The asynchronous state machine event to process. */
     private final E event;
@@ -25,8 +23,26 @@ public class AsyncEventTask<E, R> implements RunnableFuture<R>, Comparable<Async
     /** The priority of the asynchronous state machine event. */
     private final long priority;
 
-    /** The FutureTask used to process the asynchronous state machine event. */
-    private final FutureTask<R> task;
+    /** How the asynchronous state machine event is processed. */
+    private final Callable<R> callable;
+
+    /** If the task only fires its event to the state machine so it may be merged with an equal waiting event. */
+    private final boolean mergeable;
+
+    /** The result of processing the event, held until the task is completed. */
+    private R result;
+
+    /** The failure of processing the event, held until the task is completed. */
+    private Throwable failure;
+
+    /** The next task processed in the same batch. */
+    private AsyncEventTask<E, R> next;
+
+    /** The time the task was queued in nanoseconds or zero if the task is not sampled by the metrics. */
+    private long enqueueNanos;
+
+    /** If the task was queued over the capacity of the event queue. */
+    private boolean overdrawn;
 
     /**
      * Constructs a new asynchronous event task with the specified event, priority, and process definition.
@@ -36,9 +52,25 @@ public class AsyncEventTask<E, R> implements RunnableFuture<R>, Comparable<Async
      * @param callable how to process the event.
      */
     protected AsyncEventTask(E event, long priority, Callable<R> callable) {
+        this(event, priority, callable, false);
+    }
+
+    /**
+     * Constructs a new asynchronous event task with the specified event, priority, and process definition.  A
+     * mergeable task must only fire its event to the state machine, as any other processing, such as checking if the
+     * state a delayed event is scoped to is still active, would be lost when an equal event is merged with it.
+     *
+     * @param event the event to process.
+     * @param priority the priority of the event.
+     * @param callable how to process the event.
+     * @param mergeable if the task may be merged with an equal waiting event.
+     * @since 1.3.0
+     */
+    protected AsyncEventTask(E event, long priority, Callable<R> callable, boolean mergeable) {
         this.event = event;
         this.priority = priority;
-        this.task = new FutureTask<>(callable);
+        this.callable = callable;
+        this.mergeable = mergeable;
     }
 
     /**
@@ -50,34 +82,137 @@ public class AsyncEventTask<E, R> implements RunnableFuture<R>, Comparable<Async
         return event;
     }
 
-    @Override
-    public void run() {
-        task.run();
+    /**
+     * Returns the priority of the asynchronous event task.
+     *
+     * @return the priority.
+     * @since 1.3.0
+     */
+    public long getPriority() {
+        return priority;
     }
 
-    @Override
-    public boolean cancel(boolean mayInterruptIfRunning) {
-        return task.cancel(mayInterruptIfRunning);
+    /**
+     * Returns {@code true} if the task only fires its event to the state machine so it may be merged with an equal
+     * waiting event, {@code false} otherwise.
+     *
+     * @return if the task is mergeable.
+     * @since 1.3.0
+     */
+    public boolean isMergeable() {
+        return mergeable;
     }
 
-    @Override
-    public boolean isCancelled() {
-        return task.isCancelled();
+    /**
+     * Returns the time the task was queued, as given by {@link System#nanoTime()}, or zero if the task is not sampled by
+     * the metrics of the state machine.
+     *
+     * @return the time the task was queued or zero.
+     * @since 1.3.0
+     */
+    public long getEnqueueNanos() {
+        return enqueueNanos;
     }
 
-    @Override
-    public boolean isDone() {
-        return task.isDone();
+    /**
+     * Sets the time the task was queued.  This must be set before the task is queued so it is visible to the thread
+     * processing the task.
+     *
+     * @param enqueueNanos the time the task was queued.
+     * @since 1.3.0
+     */
+    protected void setEnqueueNanos(long enqueueNanos) {
+        this.enqueueNanos = enqueueNanos;
     }
 
-    @Override
-    public R get() throws InterruptedException, ExecutionException {
-        return task.get();
+    /**
+     * Returns {@code true} if the task was queued over the capacity of the event queue, {@code false} otherwise.  These
+     * are the tasks of expired timers, which are never dropped from the event queue.
+     *
+     * @return if the task was queued over capacity.
+     * @since 1.3.0
+     */
+    public boolean isOverdrawn() {
+        return overdrawn;
+    }
+
+    /**
+     * Marks the task as queued over the capacity of the event queue.  This must be set before the task is queued so it
+     * is visible to the threads accessing the queue.
+     *
+     * @since 1.3.0
+     */
+    protected void setOverdrawn() {
+        this.overdrawn = true;
+    }
+
+    /**
+     * Processes the event without completing the task.
+     *
+     * @return the result of the event.
+     * @throws Exception if the event could not be processed.
+     * @since 1.3.0
+     */
+    protected R call() throws Exception {
+        return callable.call();
+    }
+
+    /**
+     * Processes the event and holds the result, or failure, without completing the task.  This allows a batch of tasks
+     * to be processed before any of them are completed.
+     *
+     * @param previous the task processed before this task in the same batch or {@code null}.
+     * @return if the event was successfully processed.
+     * @since 1.3.0
+     */
+    protected boolean process(AsyncEventTask<E, R> previous) {
+        if (previous != null) {
+            previous.next = this;
+        }
+        try {
+            result = call();
+            return true;
+        } catch (Throwable t) {
+            failure = t;
+            return false;
+        }
+    }
+
+    /**
+     * Completes this task, and all following tasks of the same batch, with the held results.  The first failure of
+     * the batch is returned.
+     *
+     * @return the first failure or {@code null} if all events were successfully processed.
+     * @since 1.3.0
+     */
+    protected Throwable completeBatch() {
+        Throwable firstFailure = null;
+        AsyncEventTask<E, R> task = this;
+        while (task != null) {
+            if (task.failure == null) {
+                task.complete(task.result);
+            } else {
+                task.completeExceptionally(task.failure);
+                firstFailure = firstFailure != null ? firstFailure : task.failure;
+            }
+            final AsyncEventTask<E, R> following = task.next;
+            task.result = null;
+            task.failure = null;
+            task.next = null;
+            task = following;
+        }
+        return firstFailure;
     }
 
     @Override
-    public R get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-        return task.get(timeout, unit);
+    public void run() {
+        if (!isDone()) {
+            try {
+                complete(call());
+            } catch (Throwable t) {
+                completeExceptionally(t);
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,71 @@
+package com.bnorm.infinite.async;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.bnorm.infinite.StateMachineException;
+
+/**
+ * Utility class for the executors used by asynchronous state machines, actions, and transition listeners.
+ *
+ * <p>This is the Java 8 version of the class.  When built with the Java 21 profile, the multi-release jar also contains
+ * a version of this class which supports virtual threads.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public final class AsyncExecutors {
+
+    /**
+     * The system property which decides if the default executors of asynchronous actions and transition listeners use
+     * virtual threads when they are supported.  Virtual threads are used unless the property is set to {@code false}.
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "com.bnorm.infinite.async.virtualThreads";
+
+    /** Prevents instantiation of the utility class. */
+    private AsyncExecutors() {
+    }
+
+    /**
+     * Returns {@code true} if virtual threads are supported by the running Java version, {@code false} otherwise.
+     *
+     * @return if virtual threads are supported.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return false;
+    }
+
+    /**
+     * Creates the default executor of asynchronous actions and transition listeners with threads of the specified name.
+     * The executor runs each task on a new virtual thread when virtual threads are supported and not disabled by the
+     * {@value #VIRTUAL_THREADS_PROPERTY} system property.  Otherwise, the executor is a cached thread pool.
+     *
+     * @param name the name used for all threads.
+     * @return a new default executor.
+     */
+    public static ExecutorService newDefaultExecutor(String name) {
+        // Virtual threads are never supported so the property does not matter.
+        return newCachedThreadPool(name);
+    }
+
+    /**
+     * Creates a new cached thread pool with threads of the specified name.
+     *
+     * @param name the name used for all threads.
+     * @return a new cached thread pool.
+     */
+    public static ExecutorService newCachedThreadPool(String name) {
+        return Executors.newCachedThreadPool(new NamedThreadFactory(name));
+    }
+
+    /**
+     * Creates a new executor which runs each task on a new virtual thread of the specified name.
+     *
+     * @param name the name used for all threads.
+     * @return a new virtual thread executor.
+     * @throws StateMachineException if virtual threads are not supported.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String name) {
+        throw new StateMachineException("Virtual threads require Java 21 or later");
+    }
+}
@@ -0,0 +1,35 @@
+package com.bnorm.infinite.async;
+
+/**
+ * An enumeration of what an asynchronous event queue does when an event is submitted while the queue is full.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public enum AsyncOverflowPolicy {
+
+    /** The submitting thread blocks until there is room in the queue. */
+    Block,
+
+    /** The submission fails immediately with an exception. */
+    Fail,
+
+    /**
+     * The oldest submitted event is dropped from the queue to make room for the new event.  The events of expired
+     * timers, such as state timeouts, are never dropped, so if only they are waiting the new event is dropped instead.
+     */
+    DropOldest,
+
+    /** The new event is dropped and is never processed. */
+    DropNewest,
+
+    /**
+     * The new event is merged with an equal event which is already waiting in the queue and shares its result.  If
+     * there is no equal event waiting, the submission fails like {@link #Fail}.  Cancelling the shared result cancels
+     * the event for every merged submission.
+     */
+    Coalesce,
+
+    // End of enumeration
+    ;
+}
@@ -1,18 +1,21 @@
 package com.bnorm.infinite.async;
 
 import java.util.Optional;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import com.bnorm.infinite.StateMachine;
+import com.bnorm.infinite.StateMachineException;
 import com.bnorm.infinite.Transition;
 
 /**
  * The operation asynchronous state machine interface.  The asynchronous state machine is different from the base state
- * machine interface in that it must be running on a thread and processes events asynchronously via a priority queue.
- * Events can be {@link #fire(Object) fired}, {@link #submit(Object) submitted}, and {@link #inject(Object) injected}.
+ * machine interface in that it must be running on a thread, or on an {@link AsyncStateMachineScheduler}, and processes
+ * events asynchronously via an event queue.  Events can be {@link #fire(Object) fired}, {@link #submit(Object)
+ * submitted}, and {@link #inject(Object) injected}.
  *
- * <p>If the asynchronous state machine is not running on a thread, any events added to the queue will not be processed
- * until the asynchronous state machine is running.
+ * <p>If the asynchronous state machine is not running on a thread or scheduler, any events added to the queue will not
+ * be processed until the asynchronous state machine is running.
  *
  * @param <S> the class type of the states.
  * @param <E> the class type of the events.
@@ -29,6 +32,42 @@ public interface AsyncStateMachine<S, E, C> extends StateMachine<S, E, C>, Runna
      */
     boolean isRunning();
 
+    /**
+     * Returns the number of events waiting in the event queue to be processed.
+     *
+     * @return the number of queued events.
+     * @throws StateMachineException if the asynchronous state machine does not report its queue size.
+     * @since 1.3.0
+     */
+    default int getQueueSize() {
+        throw new StateMachineException("Asynchronous state machine does not report its queue size");
+    }
+
+    /**
+     * Sets the metrics the asynchronous state machine records event queue depths, wait times, processing times, and
+     * lock hold times to, replacing any previous metrics.  Specifying {@code null} stops recording metrics.
+     *
+     * @param metrics the new metrics or {@code null}.
+     * @throws StateMachineException if the asynchronous state machine does not support metrics.
+     * @since 1.3.0
+     */
+    default void setAsyncMetrics(AsyncStateMachineMetrics metrics) {
+        throw new StateMachineException("Asynchronous state machine does not support metrics");
+    }
+
+    /**
+     * Starts running the asynchronous state machine on the specified scheduler instead of a dedicated thread.  The
+     * asynchronous state machine runs on the scheduler until it is {@link #stop() stopped}.
+     *
+     * @param scheduler the scheduler to run on.
+     * @throws com.bnorm.infinite.StateMachineException if the asynchronous state machine is already running or does
+     * not support schedulers.
+     * @since 1.3.0
+     */
+    default void start(AsyncStateMachineScheduler scheduler) {
+        throw new StateMachineException("Asynchronous state machine does not support schedulers");
+    }
+
     /**
      * Singles the asynchronous state machine to stop running when it has finished processing any outstanding events.
      */
@@ -48,17 +87,69 @@ public interface AsyncStateMachine<S, E, C> extends StateMachine<S, E, C>, Runna
      * Submits the specified event to the state machine to be processed.  This adds the specified event to the end of
      * the event queue.
      *
+     * <p>The returned CompletableFuture is completed by the thread processing the event, so any dependent stages which
+     * are not asynchronous are also run by that thread and delay the processing of the following events.
+     *
+     * <p>If the event queue is full, what happens depends on its {@link AsyncOverflowPolicy}.  A dropped event
+     * completes the returned CompletableFuture exceptionally.  An event merged with an equal waiting event returns the
+     * CompletableFuture of the waiting event, which is shared with its other submissions, so cancelling it cancels the
+     * event for all of them.
+     *
      * @param event the event submitted.
      * @return the future of the resulting transition.
+     * @throws com.bnorm.infinite.StateMachineException if the event queue is full and the event could not be submitted.
      */
-    Future<Optional<Transition<S, E, C>>> submit(E event);
+    CompletableFuture<Optional<Transition<S, E, C>>> submit(E event);
 
     /**
      * Injects the specified event to the state machine for immediate processing.  This adds the specified event at the
-     * beginning of the event queue.  Multiple injects have no guarantee in what order they will be processed.
+     * beginning of the event queue.  Multiple injected events are processed in the order they were injected.
+     *
+     * <p>The returned CompletableFuture is completed by the thread processing the event, so any dependent stages which
+     * are not asynchronous are also run by that thread and delay the processing of the following events.
      *
      * @param event the event injected.
      * @return the future of the resulting transition.
      */
-    Future<Optional<Transition<S, E, C>>> inject(E event);
+    CompletableFuture<Optional<Transition<S, E, C>>> inject(E event);
+
+    /**
+     * Schedules the specified event to be {@link #submit(Object) submitted} to the state machine after the specified
+     * delay.  The delay is measured by a timing wheel which may be shared with other asynchronous state machines, so
+     * it is only as accurate as the tick of the timing wheel.
+     *
+     * <p>The delayed event is never blocked, rejected, or dropped because the event queue is full.  It goes over the
+     * capacity of the event queue instead, so expiring the timer never blocks the timing wheel.  If the delayed event
+     * could not be queued, the exception is available from {@link TimerHandle#getFailure()}.
+     *
+     * @param event the delayed event.
+     * @param delay the delay before submitting the event.
+     * @param unit the unit of the delay.
+     * @return the handle of the timer which can be used to cancel the delayed event.
+     * @throws com.bnorm.infinite.StateMachineException if the asynchronous state machine does not support timers.
+     * @since 1.3.0
+     */
+    default TimerHandle schedule(E event, long delay, TimeUnit unit) {
+        throw new StateMachineException("Asynchronous state machine does not support timers");
+    }
+
+    /**
+     * Schedules the specified event to be submitted to the state machine after the specified delay, unless the
+     * specified state is exited first.  When the state is exited, the timer is cancelled and, if the timer already
+     * expired, the delayed event is ignored.  This is useful for timeouts, such as scheduling a timeout event from an
+     * entrance action of the state waiting for a response.  The state must be the current state of the state machine
+     * or one of its parents.  Like any other delayed event, the event goes over the capacity of a full event queue.
+     *
+     * @param state the state the delayed event is scoped to.
+     * @param event the delayed event.
+     * @param delay the delay before submitting the event.
+     * @param unit the unit of the delay.
+     * @return the handle of the timer which can be used to cancel the delayed event.
+     * @throws com.bnorm.infinite.StateMachineException if the state is {@code null} or is not active, or if the
+     * asynchronous state machine does not support timers.
+     * @since 1.3.0
+     */
+    default TimerHandle schedule(S state, E event, long delay, TimeUnit unit) {
+        throw new StateMachineException("Asynchronous state machine does not support timers");
+    }
 }
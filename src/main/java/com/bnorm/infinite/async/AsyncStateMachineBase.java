@@ -1,17 +1,32 @@
 package com.bnorm.infinite.async;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.CancellationException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
+import com.bnorm.infinite.FireSummary;
+import com.bnorm.infinite.FlightRecorderEvents;
+import com.bnorm.infinite.InternalState;
 import com.bnorm.infinite.StateMachineBase;
 import com.bnorm.infinite.StateMachineException;
 import com.bnorm.infinite.StateMachineStructure;
+import com.bnorm.infinite.StateTimeout;
 import com.bnorm.infinite.Transition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,11 +45,14 @@ public class AsyncStateMachineBase<S, E, C> extends StateMachineBase<S, E, C> im
     /** The class logger. */
     private static final Logger log = LoggerFactory.getLogger(AsyncStateMachineBase.class);
 
+    /** The default maximum number of events processed with a single acquisition of the state machine lock. */
+    public static final int DEFAULT_BATCH_SIZE = 32;
+
     /** The state machine lock used to make the asynchronous state machine thread safe. */
     protected final ReentrantLock stateMachineLock;
 
-    /** The priority blocking event queue used to order submitted events. */
-    protected final PriorityBlockingQueue<AsyncEventTask<E, Optional<Transition<S, E, C>>>> eventQueue;
+    /** The event queue used to order submitted and injected events. */
+    protected final AsyncEventQueue<E, Optional<Transition<S, E, C>>> eventQueue;
 
     /** The incrementing priority of the next event. */
     protected final AtomicLong priority;
@@ -42,6 +60,48 @@ public class AsyncStateMachineBase<S, E, C> extends StateMachineBase<S, E, C> im
     /** If the asynchronous state machine is currently running. */
     protected final AtomicBoolean running;
 
+    /** The thread currently processing events of the asynchronous state machine. */
+    protected final AtomicReference<Thread> consumer;
+
+    /** The maximum number of events processed with a single acquisition of the state machine lock. */
+    protected final int batchSize;
+
+    /** The strategy used by the consumer thread to wait for events to be queued. */
+    protected final AsyncWaitStrategy waitStrategy;
+
+    /** The timing wheel used to schedule delayed events. */
+    protected final TimingWheel timingWheel;
+
+    /**
+     * The timers scoped to each state which are cancelled when the state is exited.  The queue of timers is replaced
+     * each time the state is exited so delayed events scoped to an earlier visit of the state can be ignored.
+     */
+    protected final ConcurrentMap<S, Queue<TimerHandle>> stateTimers;
+
+    /** The reusable timers of the timed states, which are only accessed while holding the state machine lock. */
+    private final Map<S, TimeoutTimer> timeoutTimers;
+
+    /** The scheduler running the asynchronous state machine or {@code null} if it is run by a thread. */
+    protected volatile AsyncStateMachineScheduler scheduler;
+
+    /** If the asynchronous state machine has been given to the scheduler to process events. */
+    protected final AtomicBoolean scheduled;
+
+    /** The task given to the scheduler to process events. */
+    private final Runnable drainTask;
+
+    /** The thread running the drain task of the scheduler or {@code null} if the drain task is not running. */
+    private volatile Thread draining;
+
+    /** The metrics of the event queue or {@code null} if metrics are not recorded. */
+    protected volatile AsyncStateMachineMetrics asyncMetrics;
+
+    /** The mask of the sequences of sampled events and batches, which is written before the metrics are set. */
+    protected long sampleMask;
+
+    /** The number of processed batches, which is only accessed while holding the state machine lock. */
+    private long batches;
+
     /**
      * Constructs a new state machine from the specified state machine structure, starting state, and context.
      *
@@ -50,11 +110,75 @@ public class AsyncStateMachineBase<S, E, C> extends StateMachineBase<S, E, C> im
      * @param context the state machine context.
      */
     public AsyncStateMachineBase(StateMachineStructure<S, E, C> structure, S starting, C context) {
+        this(structure, starting, context, new AsyncEventQueueBase<>(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a new state machine from the specified state machine structure, starting state, context, event
+     * queue, and batch size.  The consumer thread waits for events with a {@link BlockingWaitStrategy}.
+     *
+     * @param structure the state machine structure.
+     * @param starting the starting state of the state machine.
+     * @param context the state machine context.
+     * @param eventQueue the event queue.
+     * @param batchSize the maximum number of events processed with a single acquisition of the state machine lock.
+     * @since 1.3.0
+     */
+    public AsyncStateMachineBase(StateMachineStructure<S, E, C> structure, S starting, C context,
+                                 AsyncEventQueue<E, Optional<Transition<S, E, C>>> eventQueue, int batchSize) {
+        this(structure, starting, context, eventQueue, new BlockingWaitStrategy(), batchSize);
+    }
+
+    /**
+     * Constructs a new state machine from the specified state machine structure, starting state, context, event
+     * queue, wait strategy, and batch size.
+     *
+     * @param structure the state machine structure.
+     * @param starting the starting state of the state machine.
+     * @param context the state machine context.
+     * @param eventQueue the event queue.
+     * @param waitStrategy the strategy used by the consumer thread to wait for events.
+     * @param batchSize the maximum number of events processed with a single acquisition of the state machine lock.
+     * @since 1.3.0
+     */
+    public AsyncStateMachineBase(StateMachineStructure<S, E, C> structure, S starting, C context,
+                                 AsyncEventQueue<E, Optional<Transition<S, E, C>>> eventQueue,
+                                 AsyncWaitStrategy waitStrategy, int batchSize) {
+        this(structure, starting, context, eventQueue, waitStrategy, TimingWheel.getDefault(), batchSize);
+    }
+
+    /**
+     * Constructs a new state machine from the specified state machine structure, starting state, context, event
+     * queue, wait strategy, timing wheel, and batch size.
+     *
+     * @param structure the state machine structure.
+     * @param starting the starting state of the state machine.
+     * @param context the state machine context.
+     * @param eventQueue the event queue.
+     * @param waitStrategy the strategy used by the consumer thread to wait for events.
+     * @param timingWheel the timing wheel used to schedule delayed events.
+     * @param batchSize the maximum number of events processed with a single acquisition of the state machine lock.
+     * @since 1.3.0
+     */
+    public AsyncStateMachineBase(StateMachineStructure<S, E, C> structure, S starting, C context,
+                                 AsyncEventQueue<E, Optional<Transition<S, E, C>>> eventQueue,
+                                 AsyncWaitStrategy waitStrategy, TimingWheel timingWheel, int batchSize) {
         super(structure, starting, context);
+        if (batchSize < 1) {
+            throw new StateMachineException("Batch size must be positive [" + batchSize + "]");
+        }
+        this.batchSize = batchSize;
         this.stateMachineLock = new ReentrantLock();
-        this.eventQueue = new PriorityBlockingQueue<>();
+        this.eventQueue = eventQueue;
+        this.waitStrategy = waitStrategy;
+        this.timingWheel = timingWheel;
+        this.stateTimers = new ConcurrentHashMap<>();
+        this.timeoutTimers = new HashMap<>();
         this.priority = new AtomicLong(Long.MIN_VALUE + 1);
         this.running = new AtomicBoolean(false);
+        this.consumer = new AtomicReference<>();
+        this.scheduled = new AtomicBoolean(false);
+        this.drainTask = this::drain;
     }
 
     @Override
@@ -62,38 +186,97 @@ public class AsyncStateMachineBase<S, E, C> extends StateMachineBase<S, E, C> im
         return running.get();
     }
 
+    @Override
+    public int getQueueSize() {
+        return eventQueue.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Events are sampled by their priority, which is the sequence of submitted events, so deciding if an event is
+     * sampled does not require any coordination between threads.  Injected events are always sampled.
+     */
+    @Override
+    public void setAsyncMetrics(AsyncStateMachineMetrics metrics) {
+        if (metrics != null) {
+            // Round the sampling interval up to a power of two so sampling is a mask of the sequence
+            final int interval = Math.max(metrics.getSamplingInterval(), 1);
+            sampleMask = (1L << (Long.SIZE - Long.numberOfLeadingZeros(interval - 1))) - 1;
+        }
+        asyncMetrics = metrics;
+    }
+
+    /**
+     * Returns if the next batch of events processed should be timed.  This must only be called while holding the state
+     * machine lock.
+     *
+     * @param metrics the metrics of the event queue or {@code null}.
+     * @return if the batch is sampled.
+     */
+    protected boolean sampleBatch(AsyncStateMachineMetrics metrics) {
+        return metrics != null && (batches++ & sampleMask) == 0;
+    }
+
+    /**
+     * Returns {@code true} if there are no events waiting to be processed, {@code false} otherwise.
+     *
+     * @return if there are no queued events.
+     * @since 1.3.0
+     */
+    protected boolean isQueueEmpty() {
+        return eventQueue.isEmpty();
+    }
+
     @Override
     public void stop() {
         if (isRunning()) {
-            synchronized (eventQueue) {
-                // Submit a poisonous pill to the event queue that will cause it to process an event and stop running.
-                log.trace("Submitting poisonous pill into event queue");
-                running.set(false);
-                eventQueue.add(new AsyncEventTask<>(null, priority.getAndIncrement(), () -> null));
+            // Wake the consumer thread so it notices it should stop running.
+            log.trace("Signaling the event queue consumer to stop");
+            running.set(false);
+            scheduler = null;
+            LockSupport.unpark(consumer.get());
+        }
+    }
+
+    @Override
+    public void start(AsyncStateMachineScheduler scheduler) {
+        stateMachineLock.lock();
+        try {
+            if (isRunning()) {
+                throw new StateMachineException("The asynchronous state machine is already running");
             }
+            log.trace("Starting the asynchronous state machine on scheduler [{}]", scheduler);
+            this.scheduler = scheduler;
+            running.set(true);
+        } finally {
+            stateMachineLock.unlock();
         }
+        signal();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Only one thread may run the asynchronous state machine at a time.  If the asynchronous state machine is run by
+     * a new thread, the previous thread stops processing events and returns.
+     */
     @Override
     public void run() {
+        if (scheduler != null) {
+            throw new StateMachineException("The asynchronous state machine is already running on a scheduler");
+        }
+        final Thread thread = Thread.currentThread();
+        // Wake the previous consumer so it notices it has been replaced and returns.
+        LockSupport.unpark(consumer.getAndSet(thread));
         running.set(true);
+        final BooleanSupplier idle = () -> isQueueEmpty() && running.get() && consumer.get() == thread;
         try {
-            while (running.get()) {
+            while (running.get() && consumer.get() == thread) {
                 try {
-                    AsyncEventTask<?, ?> asyncEventTask = eventQueue.take();
-                    log.trace("Running next event [{}] taken from the task queue.", asyncEventTask.getEvent());
-                    asyncEventTask.run();
-                    asyncEventTask.get();
-                } catch (InterruptedException | CancellationException e) {
-                    log.warn("Exception was thrown while trying to process an event", e);
-                    /* There are 3 types of exceptions being caught here:
-                     * 1. Interrupt from BlockQueue#take()
-                     *     - This case can be safely ignored because we will loop and wait again.
-                     * 2. Interrupt from AsyncEventTask#get()
-                     *     - This should be almost impossible unless something really terrible happened.
-                     * 3. Cancel from AsyncEventTask#get()
-                     *     - Someone outside the state machine cancelled the submit or inject.
-                     */
+                    if (process(thread, batchSize) == 0) {
+                        waitStrategy.await(idle);
+                    }
                 } catch (ExecutionException e) {
                     // This is the exception we want to rethrow.  There was an issue performing a transition.
                     throw new StateMachineException(e);
@@ -101,68 +284,560 @@ public class AsyncStateMachineBase<S, E, C> extends StateMachineBase<S, E, C> im
             }
         } finally {
             // If we ever stop running for whatever reason, make sure the state machine is marked as such.
-            if (running.get()) {
-                log.warn("The state machine thread exited without being properly shutdown.");
-                running.set(false);
+            if (consumer.compareAndSet(thread, null)) {
+                if (running.get()) {
+                    log.warn("The state machine thread exited without being properly shutdown.");
+                    running.set(false);
+                }
+            } else {
+                // The state machine was handed over.  Returning from the wait strategy may have disturbed the state it
+                // uses to skip signals, so unconditionally wake the new consumer to check for events again.
+                LockSupport.unpark(consumer.get());
             }
         }
     }
 
+    /**
+     * Processes a batch of events from the event queue.  The events are taken from the queue and processed while
+     * holding the state machine lock once for the whole batch so, even if the asynchronous state machine is being
+     * handed over to a new thread, events are always processed in order.  The tasks of the batch are completed after
+     * the lock is released.  If an event fails to be processed, the batch stops with that event.
+     *
+     * @param thread the consumer thread or {@code null} if run by a scheduler.
+     * @param max the maximum number of events to process.
+     * @return the number of events taken from the event queue.
+     * @throws ExecutionException if an event could not be processed.
+     * @since 1.3.0
+     */
+    protected int process(Thread thread, int max) throws ExecutionException {
+        AsyncEventTask<E, Optional<Transition<S, E, C>>> first = null;
+        AsyncEventTask<E, Optional<Transition<S, E, C>>> last = null;
+        int processed = 0;
+        final AsyncStateMachineMetrics metrics = asyncMetrics;
+        boolean sampled = false;
+        long locked = 0;
+        stateMachineLock.lock();
+        try {
+            if (consumer.get() != thread) {
+                // Another thread has taken over running the state machine.
+                return 0;
+            }
+            if (sampleBatch(metrics)) {
+                sampled = true;
+                locked = System.nanoTime();
+            }
+            while (processed < max) {
+                final AsyncEventTask<E, Optional<Transition<S, E, C>>> asyncEventTask = eventQueue.poll();
+                if (asyncEventTask == null) {
+                    break;
+                }
+                processed++;
+                if (asyncEventTask.isDone()) {
+                    // Someone outside the state machine cancelled the submit or inject.
+                    if (TRACE) {
+                        log.trace("Skipping cancelled event [{}] taken from the task queue.",
+                                  asyncEventTask.getEvent());
+                    }
+                    continue;
+                }
+                if (TRACE) {
+                    log.trace("Running next event [{}] taken from the task queue.", asyncEventTask.getEvent());
+                }
+                final long enqueued = asyncEventTask.getEnqueueNanos();
+                final long started = enqueued != 0 ? System.nanoTime() : 0;
+                if (enqueued != 0) {
+                    FlightRecorderEvents.queueWaited(asyncEventTask.getEvent(), started - enqueued,
+                                                     asyncEventTask.getPriority() == Long.MIN_VALUE);
+                }
+                final boolean success = asyncEventTask.process(last);
+                // The enqueue time may also have been captured for flight recorder events of unsampled events.
+                if (enqueued != 0 && metrics != null && (asyncEventTask.getPriority() & sampleMask) == 0) {
+                    metrics.eventWaited(started - enqueued);
+                    metrics.eventProcessed(System.nanoTime() - started);
+                }
+                first = first != null ? first : asyncEventTask;
+                last = asyncEventTask;
+                if (!success) {
+                    break;
+                }
+            }
+        } finally {
+            if (sampled) {
+                metrics.lockHeld(System.nanoTime() - locked, processed);
+            }
+            stateMachineLock.unlock();
+        }
+
+        // Complete the tasks outside of the lock so dependent stages are not run while holding the state machine lock.
+        if (first != null) {
+            final Throwable failure = first.completeBatch();
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+        }
+        return processed;
+    }
+
+    /**
+     * Processes events from the event queue on the scheduler.  At most the scheduler throughput number of events are
+     * processed before the asynchronous state machine is given back to the scheduler.
+     */
+    private void drain() {
+        final AsyncStateMachineScheduler current = scheduler;
+        draining = Thread.currentThread();
+        try {
+            int processed = 0;
+            while (current != null && current == scheduler && processed < current.getThroughput() && running.get()) {
+                final int batch = process(null, Math.min(batchSize, current.getThroughput() - processed));
+                if (batch == 0) {
+                    break;
+                }
+                processed += batch;
+            }
+        } catch (ExecutionException e) {
+            // Throwing into the worker of the scheduler would only lose the exception, so fail the queued events.
+            log.warn("The state machine stopped running on the scheduler because of an exception.", e);
+            running.set(false);
+            scheduler = null;
+            failQueued(new StateMachineException(e));
+        } finally {
+            draining = null;
+            scheduled.set(false);
+        }
+        // Events may have been queued after the last check.
+        if (running.get() && !isQueueEmpty()) {
+            signal();
+        }
+    }
+
+    /**
+     * Returns {@code true} if the current thread is processing events, {@code false} otherwise.  Events are processed
+     * by the consumer thread or, when run by a scheduler, by the thread running the drain task.  This includes the
+     * dependent stages of the futures of processed events, which are completed by the thread processing events after
+     * the state machine lock is released.
+     *
+     * @return if the current thread is processing events.
+     * @since 1.3.0
+     */
+    protected boolean isProcessingThread() {
+        final Thread thread = Thread.currentThread();
+        return thread == consumer.get() || thread == draining;
+    }
+
+    /**
+     * Fails every event waiting to be processed with the specified exception.  This is used when the asynchronous state
+     * machine stops running on a scheduler because of an exception, so callers waiting on the queued events are not
+     * left waiting forever.
+     *
+     * @param cause the exception the queued events fail with.
+     * @since 1.3.0
+     */
+    protected void failQueued(Throwable cause) {
+        AsyncEventTask<E, Optional<Transition<S, E, C>>> asyncEventTask;
+        while ((asyncEventTask = eventQueue.poll()) != null) {
+            asyncEventTask.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Signals whoever is processing events that an event has been queued.  The consumer thread is signaled through the
+     * wait strategy or the asynchronous state machine is given to the scheduler if it is not already scheduled.
+     *
+     * @since 1.3.0
+     */
+    protected void signal() {
+        final AsyncStateMachineScheduler current = scheduler;
+        if (current != null) {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    current.execute(drainTask);
+                } catch (RuntimeException e) {
+                    // The drain task was never given to the scheduler so the next signal must try again.
+                    scheduled.set(false);
+                    throw e;
+                }
+            }
+        } else {
+            waitStrategy.signal(consumer.get());
+        }
+    }
+
     @Override
     public Optional<Transition<S, E, C>> fire(E event) {
-        if (stateMachineLock.isHeldByCurrentThread()) {
-            throw new StateMachineException("StateMachine#fire(E) was called from within a synchronous Action or " +
-                                                    "synchronous TransitionListener.\n" +
+        if (stateMachineLock.isHeldByCurrentThread() || isProcessingThread()) {
+            throw new StateMachineException("StateMachine#fire(E) was called from within a synchronous Action, " +
+                                                    "synchronous TransitionListener, or a dependent stage of " +
+                                                    "a submitted event completed by the thread processing " +
+                                                    "events.\n" +
                                                     "Please use AsyncStateMachine#sumbit(E), " +
                                                     "AsyncStateMachine#inject(E), an asynchronous Action, or " +
                                                     "asynchronous TransitionListener.");
         }
         try {
-            long pValue = priority.getAndIncrement();
-            log.trace("Firing [{}] with priority [{}].", event, pValue);
-            return submit(event, pValue).get();
+            if (TRACE) {
+                log.trace("Firing [{}].", event);
+            }
+            return submit(event).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new StateMachineException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Like {@link #fire(Object)}, the event is fired through the event queue.
+     */
+    @Override
+    public boolean fireFast(E event) {
+        return fire(event).isPresent();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The whole batch is submitted to the end of the event queue as a single task, so the events are fired while
+     * acquiring the state machine lock only once.  The batch is waited on before the summary is returned.
+     */
+    @Override
+    public FireSummary<S> fireAll(Iterable<? extends E> events) {
+        return fireBatch(() -> super.fireAll(events));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Like {@link #fireAll(Iterable)}, the whole batch is submitted to the event queue as a single task.
+     */
+    @Override
+    public FireSummary<S> fireAll(E[] events, int from, int to) {
+        checkRange(events, from, to);
+        return fireBatch(() -> super.fireAll(events, from, to));
+    }
+
+    /**
+     * Submits the specified batch of events to the end of the event queue as a single task and waits for the summary of
+     * the batch.
+     *
+     * @param batch the batch of events to fire while holding the state machine lock.
+     * @return the summary of the fired events.
+     * @throws StateMachineException if called from within a synchronous action or listener or from the thread
+     * processing events.
+     */
+    protected FireSummary<S> fireBatch(Supplier<FireSummary<S>> batch) {
+        if (stateMachineLock.isHeldByCurrentThread() || isProcessingThread()) {
+            throw new StateMachineException("StateMachine#fireAll was called from within a synchronous Action, " +
+                                                    "synchronous TransitionListener, or a dependent stage of a " +
+                                                    "submitted event completed by the thread processing events.");
+        }
+        final AtomicReference<FireSummary<S>> summary = new AtomicReference<>();
+        final CompletableFuture<Optional<Transition<S, E, C>>> future;
+        future = queue(new AsyncEventTask<>(null, priority.getAndIncrement(), () -> {
+            stateMachineLock.lock();
+            try {
+                summary.set(batch.get());
+            } finally {
+                stateMachineLock.unlock();
+            }
+            return Optional.empty();
+        }));
+        try {
+            future.get();
         } catch (InterruptedException | ExecutionException e) {
             throw new StateMachineException(e);
         }
+        return summary.get();
     }
 
     @Override
-    public Future<Optional<Transition<S, E, C>>> submit(E event) {
+    public CompletableFuture<Optional<Transition<S, E, C>>> submit(E event) {
         long pValue = priority.getAndIncrement();
-        log.trace("Submitting [{}] to the event queue with priority [{}].", event, pValue);
+        if (TRACE) {
+            log.trace("Submitting [{}] to the event queue with priority [{}].", event, pValue);
+        }
         return submit(event, pValue);
     }
 
     @Override
-    public Future<Optional<Transition<S, E, C>>> inject(E event) {
-        log.trace("Injecting [{}] into the event queue with priority [{}].", event, Long.MIN_VALUE);
+    public CompletableFuture<Optional<Transition<S, E, C>>> inject(E event) {
+        if (TRACE) {
+            log.trace("Injecting [{}] into the event queue with priority [{}].", event, Long.MIN_VALUE);
+        }
         return submit(event, Long.MIN_VALUE);
     }
 
+    @Override
+    public TimerHandle schedule(E event, long delay, TimeUnit unit) {
+        if (TRACE) {
+            log.trace("Scheduling [{}] to be submitted after [{}] [{}].", event, delay, unit);
+        }
+        return timingWheel.schedule(() -> {
+            final long pValue = priority.getAndIncrement();
+            queue(new AsyncEventTask<>(event, pValue, () -> safeFire(event)), true);
+        }, delay, unit);
+    }
+
+    @Override
+    public TimerHandle schedule(S state, E event, long delay, TimeUnit unit) {
+        if (state == null) {
+            throw new StateMachineException("State scoped timers require a non-null state");
+        }
+        if (TRACE) {
+            log.trace("Scheduling [{}] to be submitted after [{}] [{}] while in state [{}].", event, delay, unit,
+                      state);
+        }
+        // Hold the lock so the state cannot be exited while the timer is being added.
+        stateMachineLock.lock();
+        try {
+            if (!isActive(state)) {
+                // The timer would never be cancelled since the state is not exited until it is entered.
+                throw new StateMachineException("State scoped timers require an active state [" + state + "]");
+            }
+            final Queue<TimerHandle> timers = stateTimers.computeIfAbsent(state, s -> new ConcurrentLinkedQueue<>());
+            timers.removeIf(TimerHandle::isExpired);
+            final TimerHandle timer = timingWheel.schedule(() -> {
+                final long pValue = priority.getAndIncrement();
+                queue(new AsyncEventTask<>(event, pValue, () -> fireScoped(state, timers, event)), true);
+            }, delay, unit);
+            timers.add(timer);
+            return timer;
+        } finally {
+            stateMachineLock.unlock();
+        }
+    }
+
+    /**
+     * Returns {@code true} if the state machine is in the specified state or one of its child states, {@code false}
+     * otherwise.  This must be called while holding the state machine lock.
+     *
+     * @param scoped the state a timer is scoped to.
+     * @return if the state is active.
+     */
+    private boolean isActive(S scoped) {
+        InternalState<S, E, C> active = structure.getState(state);
+        while (active != null) {
+            if (Objects.equals(active.getState(), scoped)) {
+                return true;
+            }
+            active = active.getParentState().orElse(null);
+        }
+        return false;
+    }
+
+    /**
+     * Fires the specified delayed event if the state it is scoped to has not been exited since it was scheduled.
+     *
+     * @param state the state the delayed event is scoped to.
+     * @param timers the timers of the state when the delayed event was scheduled.
+     * @param event the delayed event.
+     * @return the resulting transition.
+     */
+    private Optional<Transition<S, E, C>> fireScoped(S state, Queue<TimerHandle> timers, E event) {
+        stateMachineLock.lock();
+        try {
+            if (stateTimers.get(state) != timers) {
+                if (TRACE) {
+                    log.trace("Ignoring delayed event [{}] as state [{}] has been exited.", event, state);
+                }
+                return Optional.empty();
+            }
+            return safeFire(event);
+        } finally {
+            stateMachineLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Any timers scoped to the states exited by the transition are cancelled and the timeouts of the exited states
+     * are disarmed.  The timeouts of the states entered by the transition are armed.
+     */
+    @Override
+    protected void performTransition(E event, Transition<S, E, C> transition) {
+        final InternalState<S, E, C> source = structure.getState(state);
+        if (!stateTimers.isEmpty() || source.isTimed()) {
+            exitTimers(source, transition);
+        }
+        super.performTransition(event, transition);
+        final InternalState<S, E, C> destination = structure.getState(state);
+        if (destination.isTimed()) {
+            enterTimers(destination, transition);
+        }
+    }
+
+    /**
+     * Cancels the timers scoped to, and disarms the timeouts of, the states exited by the specified transition.  These
+     * are the same states whose exit actions are performed by {@link InternalState#exit(Object, Transition, Object)}.
+     *
+     * @param exiting the internal state being exited.
+     * @param transition the transition being performed.
+     */
+    private void exitTimers(InternalState<S, E, C> exiting, Transition<S, E, C> transition) {
+        if (transition.isReentrant()) {
+            exitTimers(exiting.getState());
+            return;
+        }
+        final S destination = transition.getDestination();
+        while (exiting != null && !exiting.isChild(destination) && !Objects.equals(exiting.getState(), destination)) {
+            exitTimers(exiting.getState());
+            exiting = exiting.getParentState().orElse(null);
+        }
+    }
+
+    /**
+     * Cancels the timers scoped to, and disarms the timeout of, the specified state.
+     *
+     * @param exited the exited state.
+     */
+    private void exitTimers(S exited) {
+        final Queue<TimerHandle> timers = exited != null ? stateTimers.remove(exited) : null;
+        if (timers != null) {
+            if (TRACE) {
+                log.trace("Cancelling timers scoped to exited state [{}].", exited);
+            }
+            timers.forEach(TimerHandle::cancel);
+        }
+        final TimeoutTimer timeoutTimer = timeoutTimers.get(exited);
+        if (timeoutTimer != null) {
+            timeoutTimer.disarm();
+        }
+    }
+
+    /**
+     * Arms the timeouts of the states entered by the specified transition.  These are the same states whose entrance
+     * actions are performed by {@link InternalState#enter(Object, Transition, Object)}.
+     *
+     * @param entering the internal state being entered.
+     * @param transition the transition being performed.
+     */
+    private void enterTimers(InternalState<S, E, C> entering, Transition<S, E, C> transition) {
+        if (transition.isReentrant()) {
+            armTimeout(entering);
+            return;
+        }
+        final S source = transition.getSource();
+        while (entering != null && !entering.isChild(source) && !Objects.equals(entering.getState(), source)) {
+            armTimeout(entering);
+            entering = entering.getParentState().orElse(null);
+        }
+    }
+
+    /**
+     * Arms the timeout of the specified entered internal state, if it has one.
+     *
+     * @param entered the entered internal state.
+     */
+    private void armTimeout(InternalState<S, E, C> entered) {
+        final Optional<StateTimeout<S, E, C>> timeout = entered.getTimeout();
+        if (timeout.isPresent()) {
+            TimeoutTimer timeoutTimer = timeoutTimers.get(entered.getState());
+            if (timeoutTimer == null || timeoutTimer.timeout != timeout.get()) {
+                timeoutTimer = new TimeoutTimer(timeout.get());
+                timeoutTimers.put(entered.getState(), timeoutTimer);
+            }
+            if (TRACE) {
+                log.trace("Arming timeout of entered state [{}].", entered.getState());
+            }
+            timeoutTimer.arm();
+        }
+    }
+
+    /**
+     * Performs the timeout transition of the specified timer if the timed state has not been exited, or entered again,
+     * since the timer was armed.
+     *
+     * @param timeoutTimer the expired timer.
+     * @param deadline the deadline of the arming which expired.
+     * @return the resulting transition.
+     */
+    private Optional<Transition<S, E, C>> fireTimeout(TimeoutTimer timeoutTimer, long deadline) {
+        stateMachineLock.lock();
+        try {
+            final Transition<S, E, C> transition = timeoutTimer.timeout.getTransition();
+            if (timeoutTimer.armed != deadline || !transition.getGuard().allowed(getContext())) {
+                if (TRACE) {
+                    log.trace("Ignoring expired timeout of state [{}].", transition.getSource());
+                }
+                return Optional.empty();
+            }
+            if (TRACE) {
+                log.trace("Timeout of state [{}] expired.", transition.getSource());
+            }
+            final Transition<S, E, C> copy = transition.copy();
+            performTransition(null, copy);
+            return Optional.of(copy);
+        } finally {
+            stateMachineLock.unlock();
+        }
+    }
+
     /**
      * Submits specified event to the specified priority to the event queue.  All events processed by the asynchronous
      * state machine are technically submitted, they are just submitted differently.
      *
-     * <ol> <li>Submitted events are submitted to the priority queue with the next priority and the resulting transition
-     * Future returned to the caller.</li> <li>Injected events are submitted to the priority queue with the highest
-     * possible priority and the resulting transition Future returned to the caller.</li> <li>Fired events are submitted
-     * to the priority queue with the next priority and the resulting transition Future is waited on before the
-     * transition is returned to the caller.</li> </ol>
+     * <ol> <li>Submitted events are submitted to the end of the event queue and the resulting transition Future
+     * returned to the caller.</li> <li>Injected events, which have the highest possible priority, are injected into the
+     * event queue and the resulting transition Future returned to the caller.</li> <li>Fired events are submitted to
+     * the end of the event queue and the resulting transition Future is waited on before the transition is returned to
+     * the caller.</li> </ol>
      *
      * @param event the event to submit.
      * @param priority the priority of the submitted event.
-     * @return the resulting transition Future.
+     * @return the resulting transition CompletableFuture.
+     */
+    private CompletableFuture<Optional<Transition<S, E, C>>> submit(E event, long priority) {
+        return queue(new AsyncEventTask<>(event, priority, () -> safeFire(event), true));
+    }
+
+    /**
+     * Queues the specified event task in the event queue and signals whoever is processing events.
+     *
+     * @param asyncEventTask the event task to queue.
+     * @return the resulting transition CompletableFuture.
+     * @since 1.3.0
      */
-    private Future<Optional<Transition<S, E, C>>> submit(E event, long priority) {
+    protected CompletableFuture<Optional<Transition<S, E, C>>> queue(
+            AsyncEventTask<E, Optional<Transition<S, E, C>>> asyncEventTask) {
+        return queue(asyncEventTask, false);
+    }
+
+    /**
+     * Queues the specified event task in the event queue and signals whoever is processing events.  Tasks queued by
+     * expired timers are run by the worker thread of the timing wheel, which must never block or fail since it runs the
+     * timers of every asynchronous state machine sharing the wheel, so they go over the capacity of the event queue.
+     *
+     * @param asyncEventTask the event task to queue.
+     * @param timed if the task is queued by an expired timer.
+     * @return the resulting transition CompletableFuture.
+     * @since 1.3.0
+     */
+    protected CompletableFuture<Optional<Transition<S, E, C>>> queue(
+            AsyncEventTask<E, Optional<Transition<S, E, C>>> asyncEventTask, boolean timed) {
         if (!isRunning()) {
-            log.warn("Submitting [{}] to the event queue while it is not running!", event);
+            log.warn("Submitting [{}] to the event queue while it is not running!", asyncEventTask.getEvent());
+        }
+        final AsyncStateMachineMetrics metrics = asyncMetrics;
+        if (metrics != null) {
+            metrics.eventSubmitted(asyncEventTask.getPriority() == Long.MIN_VALUE);
+            if ((asyncEventTask.getPriority() & sampleMask) == 0) {
+                asyncEventTask.setEnqueueNanos(System.nanoTime());
+                metrics.queueDepthSampled(eventQueue.size());
+            }
+        }
+        if (asyncEventTask.getEnqueueNanos() == 0 && FlightRecorderEvents.isQueueWaitEnabled()) {
+            asyncEventTask.setEnqueueNanos(System.nanoTime());
         }
-        synchronized (eventQueue) {
-            final AsyncEventTask<E, Optional<Transition<S, E, C>>> asyncEventTask;
-            asyncEventTask = new AsyncEventTask<>(event, priority, () -> safeFire(event));
-            eventQueue.add(asyncEventTask);
-            return asyncEventTask;
+        if (asyncEventTask.getPriority() == Long.MIN_VALUE) {
+            eventQueue.inject(asyncEventTask);
+        } else if (timed) {
+            eventQueue.overdraw(asyncEventTask);
+        } else {
+            // The thread processing events must never block waiting for itself to make room in the queue.
+            asyncEventTask = eventQueue.submit(asyncEventTask, !isProcessingThread());
         }
+        signal();
+        return asyncEventTask;
     }
 
     /**
@@ -172,14 +847,64 @@ public class AsyncStateMachineBase<S, E, C> extends StateMachineBase<S, E, C> im
      * @param event the event fired.
      * @return the resulting transition.
      */
-    private Optional<Transition<S, E, C>> safeFire(E event) {
-        log.trace("Acquiring state machine lock for event [{}].", event);
+    protected Optional<Transition<S, E, C>> safeFire(E event) {
+        if (TRACE) {
+            log.trace("Acquiring state machine lock for event [{}].", event);
+        }
         stateMachineLock.lock();
         try {
             return super.fire(event);
         } finally {
-            log.trace("Releasing state machine lock for event [{}].", event);
+            if (TRACE) {
+                log.trace("Releasing state machine lock for event [{}].", event);
+            }
             stateMachineLock.unlock();
         }
     }
+
+    /**
+     * The reusable timer of a timed state.  The deadline of the current arming is remembered so an expired arming can
+     * be ignored if the state has since been exited or entered again.
+     */
+    private final class TimeoutTimer implements LongConsumer {
+
+        /** The timeout of the timed state. */
+        final StateTimeout<S, E, C> timeout;
+
+        /** The reusable timer of the timing wheel. */
+        final TimingWheel.ReusableTimer timer;
+
+        /** The deadline of the current arming, which is only accessed while holding the state machine lock. */
+        long armed;
+
+        /**
+         * Constructs a new, disarmed, timeout timer for the specified timeout.
+         *
+         * @param timeout the timeout of the timed state.
+         */
+        TimeoutTimer(StateTimeout<S, E, C> timeout) {
+            this.timeout = timeout;
+            this.timer = timingWheel.newReusableTimer(this, timeout.getTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Arms the timer, restarting it if it is already armed.
+         */
+        void arm() {
+            armed = timer.arm();
+        }
+
+        /**
+         * Disarms the timer.
+         */
+        void disarm() {
+            armed = -1;
+            timer.disarm();
+        }
+
+        @Override
+        public void accept(long deadline) {
+            queue(new AsyncEventTask<>(null, priority.getAndIncrement(), () -> fireTimeout(this, deadline)), true);
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package com.bnorm.infinite.async;
 
+import java.util.function.Supplier;
+
 import com.bnorm.infinite.StateMachineFactoryBase;
 import com.bnorm.infinite.StateMachineStructure;
 
@@ -15,8 +17,92 @@ import com.bnorm.infinite.StateMachineStructure;
 public class AsyncStateMachineFactoryBase<S, E, C> extends StateMachineFactoryBase<S, E, C>
         implements AsyncStateMachineFactory<S, E, C> {
 
+    /** The factory used to create the event queue of each asynchronous state machine. */
+    protected final AsyncEventQueueFactory<S, E, C> eventQueueFactory;
+
+    /** The supplier of the wait strategy of each asynchronous state machine. */
+    protected final Supplier<? extends AsyncWaitStrategy> waitStrategyFactory;
+
+    /** The timing wheel used by each asynchronous state machine to schedule delayed events. */
+    protected final TimingWheel timingWheel;
+
+    /** The maximum number of events processed with a single acquisition of the state machine lock. */
+    protected final int batchSize;
+
+    /**
+     * Constructs a new asynchronous state machine factory which creates asynchronous state machines with event queues
+     * from the specified factory, wait strategies from the specified supplier, the specified timing wheel, and the
+     * specified batch size.
+     *
+     * @param eventQueueFactory the factory used to create event queues.
+     * @param waitStrategyFactory the supplier of a new wait strategy for each asynchronous state machine.
+     * @param timingWheel the timing wheel shared by the asynchronous state machines to schedule delayed events.
+     * @param batchSize the maximum number of events processed with a single acquisition of the state machine lock.
+     */
+    public AsyncStateMachineFactoryBase(AsyncEventQueueFactory<S, E, C> eventQueueFactory,
+                                        Supplier<? extends AsyncWaitStrategy> waitStrategyFactory,
+                                        TimingWheel timingWheel, int batchSize) {
+        this.eventQueueFactory = eventQueueFactory;
+        this.waitStrategyFactory = waitStrategyFactory;
+        this.timingWheel = timingWheel;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Constructs a new asynchronous state machine factory which creates asynchronous state machines with event queues
+     * from the specified factory, wait strategies from the specified supplier, and the specified batch size.
+     *
+     * @param eventQueueFactory the factory used to create event queues.
+     * @param waitStrategyFactory the supplier of a new wait strategy for each asynchronous state machine.
+     * @param batchSize the maximum number of events processed with a single acquisition of the state machine lock.
+     */
+    public AsyncStateMachineFactoryBase(AsyncEventQueueFactory<S, E, C> eventQueueFactory,
+                                        Supplier<? extends AsyncWaitStrategy> waitStrategyFactory, int batchSize) {
+        this(eventQueueFactory, waitStrategyFactory, TimingWheel.getDefault(), batchSize);
+    }
+
+    /**
+     * Constructs a new asynchronous state machine factory which creates asynchronous state machines with event queues
+     * from the specified factory, blocking wait strategies, and the specified batch size.
+     *
+     * @param eventQueueFactory the factory used to create event queues.
+     * @param batchSize the maximum number of events processed with a single acquisition of the state machine lock.
+     */
+    public AsyncStateMachineFactoryBase(AsyncEventQueueFactory<S, E, C> eventQueueFactory, int batchSize) {
+        this(eventQueueFactory, BlockingWaitStrategy::new, batchSize);
+    }
+
+    /**
+     * Constructs a new asynchronous state machine factory which creates asynchronous state machines with event queues
+     * from the specified factory and the default batch size.
+     *
+     * @param eventQueueFactory the factory used to create event queues.
+     */
+    public AsyncStateMachineFactoryBase(AsyncEventQueueFactory<S, E, C> eventQueueFactory) {
+        this(eventQueueFactory, AsyncStateMachineBase.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a new asynchronous state machine factory which creates asynchronous state machines with unbounded
+     * event queues and the specified batch size.
+     *
+     * @param batchSize the maximum number of events processed with a single acquisition of the state machine lock.
+     */
+    public AsyncStateMachineFactoryBase(int batchSize) {
+        this(new AsyncEventQueueFactoryBase<>(), batchSize);
+    }
+
+    /**
+     * Constructs a new asynchronous state machine factory which creates asynchronous state machines with unbounded
+     * event queues and the default batch size.
+     */
+    public AsyncStateMachineFactoryBase() {
+        this(AsyncStateMachineBase.DEFAULT_BATCH_SIZE);
+    }
+
     @Override
     public AsyncStateMachine<S, E, C> create(StateMachineStructure<S, E, C> structure, S starting, C context) {
-        return new AsyncStateMachineBase<>(structure, starting, context);
+        return new AsyncStateMachineBase<>(structure, starting, context, eventQueueFactory.create(),
+                                           waitStrategyFactory.get(), timingWheel, batchSize);
     }
 }
@@ -0,0 +1,59 @@
+package com.bnorm.infinite.async;
+
+/**
+ * A service provider interface for recording the metrics of the event queue of asynchronous state machines.  Submitted
+ * events are always counted, but only a sample of events and batches are timed, so the cost of reading the clock stays
+ * negligible at high event rates.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ * @see AsyncStateMachine#setAsyncMetrics(AsyncStateMachineMetrics)
+ */
+public interface AsyncStateMachineMetrics {
+
+    /**
+     * Returns the sampling interval of timed events and batches.  One of every interval events and batches is timed.
+     * The interval is rounded up to a power of two and must not change once the metrics are set on a state machine.
+     *
+     * @return the sampling interval.
+     */
+    default int getSamplingInterval() {
+        return 1;
+    }
+
+    /**
+     * Records that an event was submitted, or injected, into the event queue.
+     *
+     * @param injected if the event was injected.
+     */
+    void eventSubmitted(boolean injected);
+
+    /**
+     * Records the depth of the event queue when a sampled event was submitted.
+     *
+     * @param depth the depth of the event queue.
+     */
+    void queueDepthSampled(int depth);
+
+    /**
+     * Records the time a sampled event waited in the event queue before it was processed.
+     *
+     * @param nanos the wait time in nanoseconds.
+     */
+    void eventWaited(long nanos);
+
+    /**
+     * Records the time spent processing a sampled event.
+     *
+     * @param nanos the processing time in nanoseconds.
+     */
+    void eventProcessed(long nanos);
+
+    /**
+     * Records the time the state machine lock was held to process a sampled batch of events.
+     *
+     * @param nanos the lock hold time in nanoseconds.
+     * @param events the number of events taken from the event queue while holding the lock.
+     */
+    void lockHeld(long nanos, int events);
+}
@@ -0,0 +1,161 @@
+package com.bnorm.infinite.async;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.bnorm.infinite.StateMachineException;
+import com.bnorm.infinite.metrics.LatencyHistogram;
+
+/**
+ * The base implementation of asynchronous state machine metrics.  Counters are striped {@link LongAdder}s and sampled
+ * timings are recorded in {@link LatencyHistogram}s, which are also used for the distribution of sampled queue depths.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class AsyncStateMachineMetricsBase implements AsyncStateMachineMetrics {
+
+    /** The sampling interval of timed events and batches. */
+    protected final int samplingInterval;
+
+    /** The number of submitted events. */
+    protected final LongAdder submitted;
+
+    /** The number of injected events. */
+    protected final LongAdder injected;
+
+    /** The sampled depths of the event queue. */
+    protected final LatencyHistogram queueDepth;
+
+    /** The sampled times events waited in the event queue. */
+    protected final LatencyHistogram queueWait;
+
+    /** The sampled times spent processing events. */
+    protected final LatencyHistogram processing;
+
+    /** The sampled times the state machine lock was held to process a batch of events. */
+    protected final LatencyHistogram lockHold;
+
+    /** The number of events processed by the sampled batches. */
+    protected final LongAdder lockHoldEvents;
+
+    /**
+     * Constructs a new asynchronous state machine metrics which times one of every specified interval events.
+     *
+     * @param samplingInterval the sampling interval of timed events and batches.
+     * @throws StateMachineException if the sampling interval is not positive.
+     */
+    public AsyncStateMachineMetricsBase(int samplingInterval) {
+        if (samplingInterval < 1) {
+            throw new StateMachineException("Sampling interval must be positive [" + samplingInterval + "]");
+        }
+        this.samplingInterval = samplingInterval;
+        this.submitted = new LongAdder();
+        this.injected = new LongAdder();
+        this.queueDepth = new LatencyHistogram();
+        this.queueWait = new LatencyHistogram();
+        this.processing = new LatencyHistogram();
+        this.lockHold = new LatencyHistogram();
+        this.lockHoldEvents = new LongAdder();
+    }
+
+    /**
+     * Constructs a new asynchronous state machine metrics which times every event.
+     */
+    public AsyncStateMachineMetricsBase() {
+        this(1);
+    }
+
+    @Override
+    public int getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    @Override
+    public void eventSubmitted(boolean injected) {
+        (injected ? this.injected : this.submitted).increment();
+    }
+
+    @Override
+    public void queueDepthSampled(int depth) {
+        queueDepth.record(depth);
+    }
+
+    @Override
+    public void eventWaited(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    @Override
+    public void eventProcessed(long nanos) {
+        processing.record(nanos);
+    }
+
+    @Override
+    public void lockHeld(long nanos, int events) {
+        lockHold.record(nanos);
+        lockHoldEvents.add(events);
+    }
+
+    /**
+     * Returns the number of submitted events, not including injected events.
+     *
+     * @return the number of submitted events.
+     */
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * Returns the number of injected events.
+     *
+     * @return the number of injected events.
+     */
+    public long getInjectedCount() {
+        return injected.sum();
+    }
+
+    /**
+     * Returns the distribution of sampled event queue depths.
+     *
+     * @return the queue depth histogram.
+     */
+    public LatencyHistogram getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Returns the sampled times events waited in the event queue.
+     *
+     * @return the queue wait histogram.
+     */
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * Returns the sampled times spent processing events.
+     *
+     * @return the processing histogram.
+     */
+    public LatencyHistogram getProcessing() {
+        return processing;
+    }
+
+    /**
+     * Returns the sampled times the state machine lock was held to process a batch of events.
+     *
+     * @return the lock hold histogram.
+     */
+    public LatencyHistogram getLockHold() {
+        return lockHold;
+    }
+
+    /**
+     * Returns the number of events processed by the sampled batches.
+     *
+     * @return the number of events of the sampled batches.
+     */
+    public long getLockHoldEvents() {
+        return lockHoldEvents.sum();
+    }
+}
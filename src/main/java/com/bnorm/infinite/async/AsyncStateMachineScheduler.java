@@ -0,0 +1,80 @@
+package com.bnorm.infinite.async;
+
+import java.util.concurrent.Executor;
+
+import com.bnorm.infinite.StateMachineException;
+
+/**
+ * A scheduler which runs many asynchronous state machines on a shared executor instead of a dedicated thread for each
+ * asynchronous state machine.  An asynchronous state machine is only given to the executor when it has events to
+ * process, and each asynchronous state machine is only ever processed by one executor thread at a time so the order of
+ * its events is preserved.
+ *
+ * <p>To keep one busy asynchronous state machine from starving the others, at most {@link #getThroughput()} events are
+ * processed each time an asynchronous state machine is run before it is given back to the executor.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class AsyncStateMachineScheduler {
+
+    /** The default maximum number of events processed each time an asynchronous state machine is run. */
+    public static final int DEFAULT_THROUGHPUT = 64;
+
+    /** The executor which runs the asynchronous state machines. */
+    protected final Executor executor;
+
+    /** The maximum number of events processed each time an asynchronous state machine is run. */
+    protected final int throughput;
+
+    /**
+     * Constructs a new asynchronous state machine scheduler from the specified executor and throughput.
+     *
+     * @param executor the executor which runs the asynchronous state machines.
+     * @param throughput the maximum number of events processed each time an asynchronous state machine is run.
+     */
+    public AsyncStateMachineScheduler(Executor executor, int throughput) {
+        if (throughput < 1) {
+            throw new StateMachineException("Scheduler throughput must be positive [" + throughput + "]");
+        }
+        this.executor = executor;
+        this.throughput = throughput;
+    }
+
+    /**
+     * Constructs a new asynchronous state machine scheduler from the specified executor and the default throughput.
+     *
+     * @param executor the executor which runs the asynchronous state machines.
+     */
+    public AsyncStateMachineScheduler(Executor executor) {
+        this(executor, DEFAULT_THROUGHPUT);
+    }
+
+    /**
+     * Returns the maximum number of events processed each time an asynchronous state machine is run.
+     *
+     * @return the throughput.
+     */
+    public int getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Starts running the specified asynchronous state machine on the scheduler.  This is the same as calling {@link
+     * AsyncStateMachine#start(AsyncStateMachineScheduler)}.
+     *
+     * @param stateMachine the asynchronous state machine.
+     */
+    public void start(AsyncStateMachine<?, ?, ?> stateMachine) {
+        stateMachine.start(this);
+    }
+
+    /**
+     * Executes the specified asynchronous state machine task on the executor.
+     *
+     * @param task the task which processes the events of an asynchronous state machine.
+     */
+    protected void execute(Runnable task) {
+        executor.execute(task);
+    }
+}
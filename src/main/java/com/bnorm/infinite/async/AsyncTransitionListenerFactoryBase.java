@@ -1,7 +1,7 @@
 package com.bnorm.infinite.async;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import com.bnorm.infinite.Transition;
 import com.bnorm.infinite.TransitionListener;
@@ -18,9 +18,29 @@ import com.bnorm.infinite.TransitionStage;
  */
 public class AsyncTransitionListenerFactoryBase<S, E, C> implements AsyncTransitionListenerFactory<S, E, C> {
 
+    /** The default backing executor, which uses virtual threads when they are supported. */
+    protected static final ExecutorService EXECUTOR = AsyncExecutors.newDefaultExecutor("AsyncTransitionListener");
+
     /** The backing executor. */
-    protected static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
-            new NamedThreadFactory("AsyncTransitionListener"));
+    protected final Executor executor;
+
+    /**
+     * Constructs a new asynchronous transition listener factory which executes transition listeners on the specified
+     * executor.
+     *
+     * @param executor the backing executor.
+     */
+    public AsyncTransitionListenerFactoryBase(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Constructs a new asynchronous transition listener factory which executes transition listeners on the default
+     * executor.
+     */
+    public AsyncTransitionListenerFactoryBase() {
+        this(EXECUTOR);
+    }
 
     @Override
     public TransitionListener<S, E, C> create(TransitionListener<? super S, ? super E, ? super C> listener) {
@@ -28,7 +48,7 @@ public class AsyncTransitionListenerFactoryBase<S, E, C> implements AsyncTransit
             @Override
             public void stateTransition(TransitionStage stage, E event,
                                         Transition<? extends S, ? extends E, ? extends C> transition, C context) {
-                EXECUTOR.submit(() -> listener.stateTransition(stage, event, transition, context));
+                executor.execute(() -> listener.stateTransition(stage, event, transition, context));
             }
         };
     }
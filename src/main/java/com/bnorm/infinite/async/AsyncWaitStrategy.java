@@ -0,0 +1,37 @@
+package com.bnorm.infinite.async;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * The strategy used by the thread running an asynchronous state machine to wait for events to be queued.  Strategies
+ * trade CPU usage for the latency between an event being queued and the thread starting to process it.
+ *
+ * <p>A wait strategy may keep state about the waiting thread, so each asynchronous state machine needs its own
+ * instance.  Wait strategies are not used by asynchronous state machines running on an {@link
+ * AsyncStateMachineScheduler}.
+ *
+ * <p>When an asynchronous state machine is handed over to a new thread, the previous thread may still be returning from
+ * {@link #await(BooleanSupplier)} while the new thread starts waiting.  A strategy which skips signaling based on
+ * shared state must therefore tolerate more than one thread calling {@link #await(BooleanSupplier)} at once.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public interface AsyncWaitStrategy {
+
+    /**
+     * Waits while the specified condition is {@code true}.  This may return early, such as when the waiting thread is
+     * interrupted or unparked, so the caller must check the condition again.
+     *
+     * @param idle the condition of the thread having nothing to process.
+     */
+    void await(BooleanSupplier idle);
+
+    /**
+     * Signals the specified thread that an event has been queued.  This is called by every thread queueing an event
+     * so should be as cheap as possible.
+     *
+     * @param consumer the thread running the asynchronous state machine or {@code null} if there is none.
+     */
+    void signal(Thread consumer);
+}
@@ -0,0 +1,41 @@
+package com.bnorm.infinite.async;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A wait strategy which parks the waiting thread until it is signaled.  This uses the least CPU but has the wake up
+ * latency of unparking a thread.  This is the default wait strategy.
+ *
+ * <p>The waiting threads are counted instead of flagged, since the previous consumer thread may still be returning
+ * from a wait while a new consumer thread starts waiting when an asynchronous state machine is handed over.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class BlockingWaitStrategy implements AsyncWaitStrategy {
+
+    /** The number of threads waiting for events to be queued. */
+    protected final AtomicInteger waiting = new AtomicInteger();
+
+    @Override
+    public void await(BooleanSupplier idle) {
+        waiting.incrementAndGet();
+        try {
+            // Check again after announcing the wait so a queued event cannot be missed.
+            if (idle.getAsBoolean()) {
+                LockSupport.park(this);
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void signal(Thread consumer) {
+        if (waiting.get() != 0) {
+            LockSupport.unpark(consumer);
+        }
+    }
+}
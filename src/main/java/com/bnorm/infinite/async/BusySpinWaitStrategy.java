@@ -0,0 +1,25 @@
+package com.bnorm.infinite.async;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * A wait strategy which spins the waiting thread without ever giving up the CPU.  This has the lowest latency but
+ * uses an entire CPU core, so it should only be used when there are more cores than busy spinning threads.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class BusySpinWaitStrategy implements AsyncWaitStrategy {
+
+    @Override
+    public void await(BooleanSupplier idle) {
+        while (idle.getAsBoolean()) {
+            // Spin until there is something to process.
+        }
+    }
+
+    @Override
+    public void signal(Thread consumer) {
+        // The waiting thread never stops checking for events.
+    }
+}
@@ -0,0 +1,527 @@
+package com.bnorm.infinite.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.bnorm.infinite.FireSummary;
+import com.bnorm.infinite.FlightRecorderEvents;
+import com.bnorm.infinite.StateMachineException;
+import com.bnorm.infinite.StateMachineStructure;
+import com.bnorm.infinite.Transition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An asynchronous state machine which queues submitted events in a preallocated ring buffer of reusable event holders
+ * instead of allocating a task for each event.  Submitting an event claims the next sequence of the ring buffer and
+ * publishes the event into the holder of that sequence.  If the ring buffer is full, the submitting thread waits until
+ * the event holder is free again.
+ *
+ * <p>Events {@link #publish(Object) published} to the ring buffer do not allocate anything, while {@link
+ * #submit(Object) submitted} and {@link #fire(Object) fired} events only allocate the CompletableFuture of the result.
+ * Injected events are queued in the event queue and, as with the base asynchronous state machine, are always processed
+ * before any events in the ring buffer.  Every other task, such as the delayed events of timers and the timeouts of
+ * timed states, is published to the ring buffer so it is processed in order with submitted events, unless the ring
+ * buffer is full when the timer expires.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @param <C> the class type of the context.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class RingBufferAsyncStateMachine<S, E, C> extends AsyncStateMachineBase<S, E, C> {
+
+    /** The class logger. */
+    private static final Logger log = LoggerFactory.getLogger(RingBufferAsyncStateMachine.class);
+
+    /** The default number of event holders in the ring buffer. */
+    public static final int DEFAULT_RING_SIZE = 1024;
+
+    /** The reusable event holders of the ring buffer indexed by sequence. */
+    protected final EventHolder<S, E, C>[] holders;
+
+    /** The round of the sequence last published to each event holder. */
+    protected final AtomicIntegerArray published;
+
+    /** The mask of a sequence to find the index of its event holder. */
+    protected final int mask;
+
+    /** The shift of a sequence to find its round of the ring buffer. */
+    protected final int shift;
+
+    /** The next sequence to be claimed by a producer. */
+    protected final AtomicLong cursor;
+
+    /** The next sequence to be processed.  Every event holder before this sequence is free to be claimed again. */
+    protected final AtomicLong sequence;
+
+    /** The futures of the batch being processed which need to be completed once the lock is released. */
+    private final CompletableFuture<Optional<Transition<S, E, C>>>[] futures;
+
+    /** The transitions of the batch being processed which complete the futures. */
+    private final Transition<S, E, C>[] transitions;
+
+    /**
+     * Constructs a new ring buffer state machine from the specified state machine structure, starting state, context,
+     * injected event queue, wait strategy, timing wheel, batch size, and ring size.
+     *
+     * @param structure the state machine structure.
+     * @param starting the starting state of the state machine.
+     * @param context the state machine context.
+     * @param eventQueue the event queue for injected events.
+     * @param waitStrategy the strategy used by the consumer thread to wait for events.
+     * @param timingWheel the timing wheel used to schedule delayed events.
+     * @param batchSize the maximum number of events processed with a single acquisition of the state machine lock.
+     * @param ringSize the number of event holders in the ring buffer, which must be a power of two.
+     * @throws StateMachineException if the ring size is not a positive power of two.
+     */
+    @SuppressWarnings("unchecked")
+    public RingBufferAsyncStateMachine(StateMachineStructure<S, E, C> structure, S starting, C context,
+                                       AsyncEventQueue<E, Optional<Transition<S, E, C>>> eventQueue,
+                                       AsyncWaitStrategy waitStrategy, TimingWheel timingWheel, int batchSize,
+                                       int ringSize) {
+        super(structure, starting, context, eventQueue, waitStrategy, timingWheel, batchSize);
+        if (ringSize < 1 || Integer.bitCount(ringSize) != 1) {
+            throw new StateMachineException("Ring size must be a positive power of two [" + ringSize + "]");
+        }
+        this.holders = new EventHolder[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            holders[i] = new EventHolder<>();
+        }
+        this.published = new AtomicIntegerArray(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            // Nothing has been published so no event holder has a round.
+            published.set(i, -1);
+        }
+        this.mask = ringSize - 1;
+        this.shift = Integer.numberOfTrailingZeros(ringSize);
+        this.cursor = new AtomicLong();
+        this.sequence = new AtomicLong();
+        this.futures = new CompletableFuture[batchSize];
+        this.transitions = new Transition[batchSize];
+    }
+
+    /**
+     * Constructs a new ring buffer state machine from the specified state machine structure, starting state, and
+     * context with the default ring size.
+     *
+     * @param structure the state machine structure.
+     * @param starting the starting state of the state machine.
+     * @param context the state machine context.
+     */
+    public RingBufferAsyncStateMachine(StateMachineStructure<S, E, C> structure, S starting, C context) {
+        this(structure, starting, context, new AsyncEventQueueBase<>(), new BlockingWaitStrategy(),
+             TimingWheel.getDefault(), DEFAULT_BATCH_SIZE, DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * Returns the number of event holders in the ring buffer.
+     *
+     * @return the ring size.
+     */
+    public int getRingSize() {
+        return holders.length;
+    }
+
+    /**
+     * Publishes the specified event to the ring buffer to be processed.  Unlike {@link #submit(Object)}, the result of
+     * the event is not available and publishing does not allocate anything.  If the event fails to be processed, the
+     * asynchronous state machine stops running like it does for any other event.
+     *
+     * @param event the event published.
+     * @throws StateMachineException if the ring buffer is full and the event is published by the thread processing
+     * events.
+     */
+    public void publish(E event) {
+        if (TRACE) {
+            log.trace("Publishing [{}] to the ring buffer.", event);
+        }
+        publish(event, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The event is published to the ring buffer.
+     *
+     * @throws StateMachineException if the ring buffer is full and the event is submitted by the thread processing
+     * events.
+     */
+    @Override
+    public CompletableFuture<Optional<Transition<S, E, C>>> submit(E event) {
+        if (TRACE) {
+            log.trace("Submitting [{}] to the ring buffer.", event);
+        }
+        final CompletableFuture<Optional<Transition<S, E, C>>> future = new CompletableFuture<>();
+        publish(event, future, null);
+        return future;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Injected tasks are queued in the event queue.  Every other task is published to the ring buffer.  Tasks queued
+     * by expired timers never wait for a free event holder, so if the ring buffer is full they are queued over the
+     * capacity of the event queue instead, which processes them before the events waiting in the ring buffer.
+     */
+    @Override
+    protected CompletableFuture<Optional<Transition<S, E, C>>> queue(
+            AsyncEventTask<E, Optional<Transition<S, E, C>>> asyncEventTask, boolean timed) {
+        if (asyncEventTask.getPriority() == Long.MIN_VALUE) {
+            return super.queue(asyncEventTask, timed);
+        }
+        final long claimed = timed ? tryClaim() : claim(asyncEventTask.getEvent());
+        if (claimed < 0) {
+            if (TRACE) {
+                log.trace("Queueing task of [{}] as the ring buffer is full.", asyncEventTask.getEvent());
+            }
+            return super.queue(asyncEventTask, true);
+        }
+        if (TRACE) {
+            log.trace("Publishing task of [{}] to the ring buffer.", asyncEventTask.getEvent());
+        }
+        publish(claimed, asyncEventTask.getEvent(), asyncEventTask, asyncEventTask);
+        return asyncEventTask;
+    }
+
+    /**
+     * Claims the next sequence of the ring buffer and publishes the specified event, future, and task into its event
+     * holder.
+     *
+     * @param event the event published.
+     * @param future the future of the resulting transition or {@code null}.
+     * @param task the task processing the event or {@code null} if the event is fired to the state machine.
+     */
+    private void publish(E event, CompletableFuture<Optional<Transition<S, E, C>>> future,
+                         AsyncEventTask<E, Optional<Transition<S, E, C>>> task) {
+        publish(claim(event), event, future, task);
+    }
+
+    /**
+     * Publishes the specified event, future, and task into the event holder of the specified claimed sequence.
+     *
+     * @param claimed the claimed sequence.
+     * @param event the event published.
+     * @param future the future of the resulting transition or {@code null}.
+     * @param task the task processing the event or {@code null} if the event is fired to the state machine.
+     */
+    private void publish(long claimed, E event, CompletableFuture<Optional<Transition<S, E, C>>> future,
+                         AsyncEventTask<E, Optional<Transition<S, E, C>>> task) {
+        final int index = (int) claimed & mask;
+        final EventHolder<S, E, C> holder = holders[index];
+        holder.event = event;
+        holder.future = future;
+        holder.task = task;
+        holder.publishedNanos = 0;
+        final AsyncStateMachineMetrics metrics = asyncMetrics;
+        if (metrics != null) {
+            metrics.eventSubmitted(false);
+            if ((claimed & sampleMask) == 0) {
+                holder.publishedNanos = System.nanoTime();
+                metrics.queueDepthSampled((int) (claimed - sequence.get()));
+            }
+        }
+        if (holder.publishedNanos == 0 && FlightRecorderEvents.isQueueWaitEnabled()) {
+            holder.publishedNanos = System.nanoTime();
+        }
+        published.lazySet(index, (int) (claimed >>> shift));
+        signal();
+    }
+
+    /**
+     * Claims the next sequence of the ring buffer, waiting for its event holder to be free if the ring buffer is full.
+     *
+     * @param event the event being published.
+     * @return the claimed sequence.
+     * @throws StateMachineException if the ring buffer is full and the current thread is processing events.
+     */
+    private long claim(E event) {
+        while (true) {
+            final long claimed = tryClaim();
+            if (claimed >= 0) {
+                return claimed;
+            }
+            if (isProcessingThread()) {
+                // Waiting for the thread processing events to free an event holder would dead lock.
+                throw new StateMachineException("Ring buffer is full [" + holders.length + "] publishing [" + event +
+                                                        "] from the thread processing events");
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Claims the next sequence of the ring buffer without waiting.
+     *
+     * @return the claimed sequence or {@code -1} if the ring buffer is full.
+     */
+    private long tryClaim() {
+        while (true) {
+            final long current = cursor.get();
+            if (current - sequence.get() >= holders.length) {
+                return -1;
+            } else if (cursor.compareAndSet(current, current + 1)) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Every event of the batch is published to the ring buffer, so the batch is ordered after previously submitted
+     * events, before waiting for the last event to be processed.  The summary is computed from the results of the
+     * events once the whole batch has been processed.
+     */
+    @Override
+    public FireSummary<S> fireAll(Iterable<? extends E> events) {
+        checkNotProcessing();
+        final List<CompletableFuture<Optional<Transition<S, E, C>>>> futures = new ArrayList<>();
+        for (E event : events) {
+            futures.add(submit(event));
+        }
+        return summarize(futures);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Like {@link #fireAll(Iterable)}, every event of the batch is published to the ring buffer before waiting for
+     * the last event to be processed.
+     */
+    @Override
+    public FireSummary<S> fireAll(E[] events, int from, int to) {
+        checkRange(events, from, to);
+        checkNotProcessing();
+        final List<CompletableFuture<Optional<Transition<S, E, C>>>> futures = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            futures.add(submit(events[i]));
+        }
+        return summarize(futures);
+    }
+
+    /**
+     * Checks that the current thread may wait for a batch of events to be processed.
+     *
+     * @throws StateMachineException if called from within a synchronous action or listener or from the thread
+     * processing events.
+     */
+    private void checkNotProcessing() {
+        if (stateMachineLock.isHeldByCurrentThread() || isProcessingThread()) {
+            throw new StateMachineException("StateMachine#fireAll was called from within a synchronous Action, " +
+                                                    "synchronous TransitionListener, or a dependent stage of a " +
+                                                    "submitted event completed by the thread processing events.");
+        }
+    }
+
+    /**
+     * Waits for the last of the specified futures of a published batch of events and summarizes the results of the
+     * batch.  Events are processed, and their futures completed, in the order they were published, so every future of
+     * the batch is complete once the last future is.
+     *
+     * @param futures the futures of the published events in the order they were published.
+     * @return the summary of the fired events.
+     * @throws StateMachineException if an event of the batch could not be processed.
+     */
+    private FireSummary<S> summarize(List<CompletableFuture<Optional<Transition<S, E, C>>>> futures) {
+        long taken = 0;
+        try {
+            if (!futures.isEmpty()) {
+                futures.get(futures.size() - 1).get();
+            }
+            for (CompletableFuture<Optional<Transition<S, E, C>>> future : futures) {
+                if (future.get().isPresent()) {
+                    taken++;
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new StateMachineException(e);
+        }
+        return new FireSummary<>(taken, futures.size() - taken, getState());
+    }
+
+    @Override
+    public int getQueueSize() {
+        return super.getQueueSize() + (int) (cursor.get() - sequence.get());
+    }
+
+    @Override
+    protected boolean isQueueEmpty() {
+        return super.isQueueEmpty() && cursor.get() == sequence.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Injected events in the event queue are processed first.  Otherwise, published events are taken from the ring
+     * buffer, and their event holders are freed, until an event is injected.
+     */
+    @Override
+    protected int process(Thread thread, int max) throws ExecutionException {
+        if (!eventQueue.isEmpty()) {
+            // Injected events are processed before any events in the ring buffer.
+            return super.process(thread, max);
+        }
+
+        final int limit = Math.min(max, futures.length);
+        int processed = 0;
+        int completed = 0;
+        Throwable failure = null;
+        CompletableFuture<Optional<Transition<S, E, C>>> failed = null;
+        final AsyncStateMachineMetrics metrics = asyncMetrics;
+        boolean sampled = false;
+        long locked = 0;
+        stateMachineLock.lock();
+        try {
+            if (consumer.get() != thread) {
+                // Another thread has taken over running the state machine.
+                return 0;
+            }
+            if (sampleBatch(metrics)) {
+                sampled = true;
+                locked = System.nanoTime();
+            }
+            long next = sequence.get();
+            while (processed < limit && eventQueue.isEmpty()) {
+                final int index = (int) next & mask;
+                if (published.get(index) != (int) (next >>> shift)) {
+                    // The next sequence has not been published yet.
+                    break;
+                }
+                final EventHolder<S, E, C> holder = holders[index];
+                final E event = holder.event;
+                final CompletableFuture<Optional<Transition<S, E, C>>> future = holder.future;
+                final AsyncEventTask<E, Optional<Transition<S, E, C>>> task = holder.task;
+                final long publishedNanos = holder.publishedNanos;
+                holder.event = null;
+                holder.future = null;
+                holder.task = null;
+                sequence.lazySet(++next);
+                processed++;
+                if (future != null && future.isDone()) {
+                    // Someone outside the state machine cancelled the submit.
+                    if (TRACE) {
+                        log.trace("Skipping cancelled event [{}] taken from the ring buffer.", event);
+                    }
+                    continue;
+                }
+
+                if (TRACE) {
+                    log.trace("Running next event [{}] taken from the ring buffer.", event);
+                }
+                final long started = publishedNanos != 0 ? System.nanoTime() : 0;
+                if (publishedNanos != 0) {
+                    FlightRecorderEvents.queueWaited(event, started - publishedNanos, false);
+                }
+                try {
+                    Transition<S, E, C> transition;
+                    if (task != null) {
+                        transition = task.call().orElse(null);
+                    } else {
+                        transition = findTransition(event);
+                        if (transition != null) {
+                            transition = transition.copy();
+                            performTransition(event, transition);
+                        }
+                    }
+                    // The publish time may also have been captured for flight recorder events of unsampled events.
+                    if (publishedNanos != 0 && metrics != null && ((next - 1) & sampleMask) == 0) {
+                        metrics.eventWaited(started - publishedNanos);
+                        metrics.eventProcessed(System.nanoTime() - started);
+                    }
+                    if (future != null) {
+                        futures[completed] = future;
+                        transitions[completed] = transition;
+                        completed++;
+                    }
+                } catch (Throwable t) {
+                    failure = t;
+                    failed = future;
+                    break;
+                }
+            }
+        } finally {
+            if (sampled) {
+                metrics.lockHeld(System.nanoTime() - locked, processed);
+            }
+            stateMachineLock.unlock();
+        }
+
+        // Complete the futures outside of the lock so dependent stages are not run while holding the lock.
+        for (int i = 0; i < completed; i++) {
+            final CompletableFuture<Optional<Transition<S, E, C>>> future = futures[i];
+            final Transition<S, E, C> transition = transitions[i];
+            futures[i] = null;
+            transitions[i] = null;
+            future.complete(Optional.ofNullable(transition));
+        }
+        if (failure != null) {
+            if (failed != null) {
+                failed.completeExceptionally(failure);
+            }
+            throw new ExecutionException(failure);
+        }
+        return processed;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The events published to the ring buffer are also taken from the ring buffer, and their event holders are
+     * freed.  The futures of the events are failed once the lock is released.
+     */
+    @Override
+    protected void failQueued(Throwable cause) {
+        super.failQueued(cause);
+        final List<CompletableFuture<Optional<Transition<S, E, C>>>> failed = new ArrayList<>();
+        stateMachineLock.lock();
+        try {
+            long next = sequence.get();
+            while (true) {
+                final int index = (int) next & mask;
+                if (published.get(index) != (int) (next >>> shift)) {
+                    break;
+                }
+                final EventHolder<S, E, C> holder = holders[index];
+                if (holder.future != null) {
+                    failed.add(holder.future);
+                }
+                holder.event = null;
+                holder.future = null;
+                holder.task = null;
+                sequence.lazySet(++next);
+            }
+        } finally {
+            stateMachineLock.unlock();
+        }
+        failed.forEach(future -> future.completeExceptionally(cause));
+    }
+
+    /**
+     * A reusable holder of an event published to the ring buffer.
+     *
+     * @param <S> the class type of the states.
+     * @param <E> the class type of the events.
+     * @param <C> the class type of the context.
+     */
+    protected static final class EventHolder<S, E, C> {
+
+        /** The published event. */
+        E event;
+
+        /** The future of the resulting transition or {@code null} if the event was published without one. */
+        CompletableFuture<Optional<Transition<S, E, C>>> future;
+
+        /** The task processing the event or {@code null} if the event is fired to the state machine. */
+        AsyncEventTask<E, Optional<Transition<S, E, C>>> task;
+
+        /** The time the event was published in nanoseconds or zero if the event is not sampled by the metrics. */
+        long publishedNanos;
+    }
+}
@@ -0,0 +1,77 @@
+package com.bnorm.infinite.async;
+
+import java.util.function.Supplier;
+
+import com.bnorm.infinite.StateMachineStructure;
+
+/**
+ * A factory for creating ring buffer asynchronous state machines.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @param <C> the class type of the context.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class RingBufferAsyncStateMachineFactory<S, E, C> extends AsyncStateMachineFactoryBase<S, E, C>
+        implements AsyncStateMachineFactory<S, E, C> {
+
+    /** The number of event holders in the ring buffer of each asynchronous state machine. */
+    protected final int ringSize;
+
+    /**
+     * Constructs a new ring buffer asynchronous state machine factory which creates asynchronous state machines with
+     * injected event queues from the specified factory, wait strategies from the specified supplier, the specified
+     * timing wheel, and the specified batch size and ring size.
+     *
+     * @param eventQueueFactory the factory used to create injected event queues.
+     * @param waitStrategyFactory the supplier of a new wait strategy for each asynchronous state machine.
+     * @param timingWheel the timing wheel shared by the asynchronous state machines to schedule delayed events.
+     * @param batchSize the maximum number of events processed with a single acquisition of the state machine lock.
+     * @param ringSize the number of event holders in the ring buffer, which must be a power of two.
+     */
+    public RingBufferAsyncStateMachineFactory(AsyncEventQueueFactory<S, E, C> eventQueueFactory,
+                                              Supplier<? extends AsyncWaitStrategy> waitStrategyFactory,
+                                              TimingWheel timingWheel, int batchSize, int ringSize) {
+        super(eventQueueFactory, waitStrategyFactory, timingWheel, batchSize);
+        this.ringSize = ringSize;
+    }
+
+    /**
+     * Constructs a new ring buffer asynchronous state machine factory which creates asynchronous state machines with
+     * wait strategies from the specified supplier and the specified ring size.
+     *
+     * @param waitStrategyFactory the supplier of a new wait strategy for each asynchronous state machine.
+     * @param ringSize the number of event holders in the ring buffer, which must be a power of two.
+     */
+    public RingBufferAsyncStateMachineFactory(Supplier<? extends AsyncWaitStrategy> waitStrategyFactory,
+                                              int ringSize) {
+        this(new AsyncEventQueueFactoryBase<>(), waitStrategyFactory, TimingWheel.getDefault(),
+             AsyncStateMachineBase.DEFAULT_BATCH_SIZE, ringSize);
+    }
+
+    /**
+     * Constructs a new ring buffer asynchronous state machine factory which creates asynchronous state machines with
+     * the specified ring size.
+     *
+     * @param ringSize the number of event holders in the ring buffer, which must be a power of two.
+     */
+    public RingBufferAsyncStateMachineFactory(int ringSize) {
+        this(BlockingWaitStrategy::new, ringSize);
+    }
+
+    /**
+     * Constructs a new ring buffer asynchronous state machine factory which creates asynchronous state machines with
+     * the default ring size.
+     */
+    public RingBufferAsyncStateMachineFactory() {
+        this(RingBufferAsyncStateMachine.DEFAULT_RING_SIZE);
+    }
+
+    @Override
+    public RingBufferAsyncStateMachine<S, E, C> create(StateMachineStructure<S, E, C> structure, S starting,
+                                                       C context) {
+        return new RingBufferAsyncStateMachine<>(structure, starting, context, eventQueueFactory.create(),
+                                                 waitStrategyFactory.get(), timingWheel, batchSize, ringSize);
+    }
+}
@@ -0,0 +1,52 @@
+package com.bnorm.infinite.async;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * A wait strategy which spins the waiting thread a number of times and then yields the CPU between checks.  This has
+ * low latency while giving other threads a chance to run, but still uses a lot of CPU while idle.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class SpinThenYieldWaitStrategy implements AsyncWaitStrategy {
+
+    /** The default number of times the waiting thread spins before yielding. */
+    public static final int DEFAULT_SPINS = 100;
+
+    /** The number of times the waiting thread spins before yielding. */
+    protected final int spins;
+
+    /**
+     * Constructs a new spin then yield wait strategy which spins the specified number of times before yielding.
+     *
+     * @param spins the number of times to spin before yielding.
+     */
+    public SpinThenYieldWaitStrategy(int spins) {
+        this.spins = spins;
+    }
+
+    /**
+     * Constructs a new spin then yield wait strategy which spins the default number of times before yielding.
+     */
+    public SpinThenYieldWaitStrategy() {
+        this(DEFAULT_SPINS);
+    }
+
+    @Override
+    public void await(BooleanSupplier idle) {
+        int counter = spins;
+        while (idle.getAsBoolean()) {
+            if (counter > 0) {
+                counter--;
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    @Override
+    public void signal(Thread consumer) {
+        // The waiting thread never stops checking for events.
+    }
+}
@@ -0,0 +1,47 @@
+package com.bnorm.infinite.async;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import com.bnorm.infinite.StateMachineException;
+
+/**
+ * A wait strategy which parks the waiting thread for a fixed amount of time between checks.  Threads queueing events
+ * never need to unpark the waiting thread, which makes queueing events cheaper, but an event may wait up to the park
+ * time before it is processed.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class TimedParkWaitStrategy implements AsyncWaitStrategy {
+
+    /** The maximum time in nanoseconds the waiting thread parks between checks. */
+    protected final long parkNanos;
+
+    /**
+     * Constructs a new timed park wait strategy which parks for the specified time between checks.
+     *
+     * @param time the time to park between checks.
+     * @param unit the unit of the time.
+     * @throws StateMachineException if the time is not positive.
+     */
+    public TimedParkWaitStrategy(long time, TimeUnit unit) {
+        this.parkNanos = unit.toNanos(time);
+        if (parkNanos < 1) {
+            throw new StateMachineException("Park time must be positive [" + time + " " + unit + "]");
+        }
+    }
+
+    @Override
+    public void await(BooleanSupplier idle) {
+        if (idle.getAsBoolean()) {
+            LockSupport.parkNanos(this, parkNanos);
+        }
+    }
+
+    @Override
+    public void signal(Thread consumer) {
+        // The waiting thread checks for events when the park time expires.
+    }
+}
@@ -0,0 +1,42 @@
+package com.bnorm.infinite.async;
+
+import java.util.Optional;
+
+/**
+ * A handle to a timer scheduled on a {@link TimingWheel}, such as a delayed event of an asynchronous state machine.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public interface TimerHandle {
+
+    /**
+     * Cancels the timer so it never expires.  Cancelling a timer is a constant time operation.
+     *
+     * @return {@code true} if the timer was cancelled, {@code false} if it already expired or was cancelled.
+     */
+    boolean cancel();
+
+    /**
+     * Returns {@code true} if the timer was cancelled before it expired, {@code false} otherwise.
+     *
+     * @return if the timer was cancelled.
+     */
+    boolean isCancelled();
+
+    /**
+     * Returns {@code true} if the timer has expired, {@code false} otherwise.
+     *
+     * @return if the timer expired.
+     */
+    boolean isExpired();
+
+    /**
+     * Returns the exception thrown by the task of the expired timer, such as an event which could not be queued by an
+     * asynchronous state machine, or empty if the timer has not expired or the task succeeded.  The exception is only
+     * available once the task has returned, which may be shortly after the timer is marked as expired.
+     *
+     * @return the exception thrown by the task of the timer.
+     */
+    Optional<Throwable> getFailure();
+}
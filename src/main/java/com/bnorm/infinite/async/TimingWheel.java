@@ -0,0 +1,578 @@
+package com.bnorm.infinite.async;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+import com.bnorm.infinite.StateMachineException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timing wheel which runs tasks after a delay.  A single timing wheel can be shared by any number of
+ * asynchronous state machines since scheduling and cancelling a timer are constant time operations that never block.
+ *
+ * <p>The wheel is an array of buckets which a single worker thread moves through one tick at a time.  A timer is
+ * placed in the bucket of the tick it expires on and timers further in the future than one turn of the wheel count
+ * down the remaining turns.  Timers are therefore only as accurate as the tick duration.  Cancelled timers are removed
+ * from their bucket by the worker thread on the next tick.  Expired tasks are run by the worker thread so they must be
+ * short, such as submitting an event to an asynchronous state machine.
+ *
+ * <p>Besides one-shot timers, the timing wheel supports {@linkplain #newReusableTimer(LongConsumer, long, TimeUnit)
+ * reusable timers} which can be armed and disarmed any number of times without allocating anything.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class TimingWheel {
+
+    /** The class logger. */
+    private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+
+    /** The default duration of a tick in milliseconds. */
+    public static final long DEFAULT_TICK_MILLIS = 10;
+
+    /** The default number of buckets in the wheel. */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /** The deadline of a reusable timer which is not armed. */
+    private static final long DISARMED = -1;
+
+    /** The duration of a tick in nanoseconds. */
+    protected final long tickNanos;
+
+    /** The buckets of the wheel indexed by tick. */
+    protected final Bucket[] wheel;
+
+    /** The mask of a tick to find the index of its bucket. */
+    protected final int mask;
+
+    /** The stack of scheduled timers waiting to be placed in a bucket by the worker thread. */
+    protected final AtomicReference<Node> scheduled;
+
+    /** The stack of cancelled timers waiting to be removed from their bucket by the worker thread. */
+    protected final AtomicReference<Node> cancelled;
+
+    /** The name of the worker thread. */
+    protected final String name;
+
+    /** The time in nanoseconds the timing wheel was created.  Deadlines and ticks are relative to this time. */
+    protected final long startTime;
+
+    /** If the worker thread has been started. */
+    private final AtomicBoolean started;
+
+    /** If the timing wheel has been stopped. */
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a new timing wheel with the specified tick duration, wheel size, and worker thread name.  The worker
+     * thread is a daemon thread started when the first timer is scheduled.
+     *
+     * @param tick the duration of a tick.
+     * @param unit the unit of the tick duration.
+     * @param wheelSize the number of buckets in the wheel, which must be a power of two.
+     * @param name the name of the worker thread.
+     * @throws StateMachineException if the tick is not positive or the wheel size is not a positive power of two.
+     */
+    public TimingWheel(long tick, TimeUnit unit, int wheelSize, String name) {
+        this.tickNanos = unit.toNanos(tick);
+        if (tickNanos < 1) {
+            throw new StateMachineException("Tick duration must be positive [" + tick + " " + unit + "]");
+        }
+        if (wheelSize < 1 || Integer.bitCount(wheelSize) != 1) {
+            throw new StateMachineException("Wheel size must be a positive power of two [" + wheelSize + "]");
+        }
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.scheduled = new AtomicReference<>();
+        this.cancelled = new AtomicReference<>();
+        this.name = name;
+        this.startTime = System.nanoTime();
+        this.started = new AtomicBoolean(false);
+    }
+
+    /**
+     * Constructs a new timing wheel with the default tick duration and wheel size.
+     *
+     * @param name the name of the worker thread.
+     */
+    public TimingWheel(String name) {
+        this(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE, name);
+    }
+
+    /**
+     * Returns the timing wheel shared by all asynchronous state machines which were not given a timing wheel.
+     *
+     * @return the default timing wheel.
+     */
+    public static TimingWheel getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Schedules the specified task to be run by the worker thread after the specified delay.
+     *
+     * @param task the task to run.
+     * @param delay the delay before running the task.
+     * @param unit the unit of the delay.
+     * @return the handle of the scheduled timer.
+     * @throws StateMachineException if the timing wheel has been stopped.
+     */
+    public TimerHandle schedule(Runnable task, long delay, TimeUnit unit) {
+        final Timer timer = new Timer(task, now() + Math.max(0, unit.toNanos(delay)));
+        push(timer);
+        return timer;
+    }
+
+    /**
+     * Creates a new reusable timer which runs the specified task when it expires the specified delay after being
+     * armed.  The task is given the deadline of the arming which expired, as returned by {@link ReusableTimer#arm()}.
+     * The timer is not armed when it is created.
+     *
+     * @param task the task to run.
+     * @param delay the delay between arming the timer and running the task.
+     * @param unit the unit of the delay.
+     * @return a new reusable timer.
+     */
+    public ReusableTimer newReusableTimer(LongConsumer task, long delay, TimeUnit unit) {
+        return new ReusableTimer(task, Math.max(0, unit.toNanos(delay)));
+    }
+
+    /**
+     * Stops the worker thread.  Any timers which have not expired are never run.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Returns the current time in nanoseconds relative to the creation of the timing wheel.
+     *
+     * @return the current time.
+     */
+    private long now() {
+        return System.nanoTime() - startTime;
+    }
+
+    /**
+     * Pushes the specified timer onto the stack of scheduled timers, starting the worker thread if needed.
+     *
+     * @param node the scheduled timer.
+     * @throws StateMachineException if the timing wheel has been stopped.
+     */
+    private void push(Node node) {
+        if (stopped) {
+            throw new StateMachineException("The timing wheel [" + name + "] has been stopped");
+        }
+        if (!started.get() && started.compareAndSet(false, true)) {
+            final Thread worker = new Thread(this::work, name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        Node head;
+        do {
+            head = scheduled.get();
+            node.nextScheduled = head;
+        } while (!scheduled.compareAndSet(head, node));
+    }
+
+    /**
+     * Pushes the specified cancelled timer onto the stack of cancelled timers so the worker thread removes it from its
+     * bucket on the next tick.
+     *
+     * @param node the cancelled timer.
+     */
+    private void pushCancelled(Node node) {
+        Node head;
+        do {
+            head = cancelled.get();
+            node.nextCancelled = head;
+        } while (!cancelled.compareAndSet(head, node));
+    }
+
+    /**
+     * Moves through the wheel one tick at a time, expiring the timers of each tick, until the timing wheel is stopped.
+     */
+    private void work() {
+        long tick = now() / tickNanos;
+        while (!stopped) {
+            final long deadline = tickNanos * (tick + 1);
+            final long sleepNanos = deadline - now();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    log.warn("The timing wheel [{}] was interrupted and stopped.", name);
+                    stopped = true;
+                    break;
+                }
+                continue;
+            }
+
+            Node node = scheduled.getAndSet(null);
+            while (node != null) {
+                final Node following = node.nextScheduled;
+                node.nextScheduled = null;
+                place(node, tick);
+                node = following;
+            }
+            node = cancelled.getAndSet(null);
+            while (node != null) {
+                final Node following = node.nextCancelled;
+                node.nextCancelled = null;
+                if (node.bucket != null) {
+                    node.bucket.remove(node);
+                }
+                node = following;
+            }
+            expire(wheel[(int) tick & mask], deadline, tick);
+            tick++;
+        }
+    }
+
+    /**
+     * Places the specified timer in the bucket of the tick it expires on.  A timer which is already due is placed in
+     * the bucket of the current tick.
+     *
+     * @param node the timer to place.
+     * @param tick the current tick.
+     */
+    private void place(Node node, long tick) {
+        if (node.isCancelled()) {
+            return;
+        }
+        final long expiresOn = Math.max(node.deadline / tickNanos, tick);
+        node.remainingRounds = (expiresOn - tick) / wheel.length;
+        wheel[(int) expiresOn & mask].add(node);
+    }
+
+    /**
+     * Expires every timer of the specified bucket which is due by the specified deadline.  Timers due on a later turn
+     * of the wheel count down their remaining rounds and cancelled timers are removed.  Reusable timers which were
+     * armed again are placed in their new bucket once the whole bucket has been expired.
+     *
+     * @param bucket the bucket of the current tick.
+     * @param deadline the deadline of the current tick.
+     * @param tick the current tick.
+     */
+    private void expire(Bucket bucket, long deadline, long tick) {
+        Node rearmed = null;
+        Node node = bucket.head;
+        while (node != null) {
+            if (node.remainingRounds <= 0 && node.deadline <= deadline) {
+                final Node expired = node;
+                node = bucket.remove(node);
+                if (expired.expire(deadline)) {
+                    expired.nextScheduled = rearmed;
+                    rearmed = expired;
+                }
+            } else if (node.isCancelled()) {
+                node = bucket.remove(node);
+            } else {
+                node.remainingRounds--;
+                node = node.next;
+            }
+        }
+        while (rearmed != null) {
+            final Node following = rearmed.nextScheduled;
+            rearmed.nextScheduled = null;
+            place(rearmed, tick + 1);
+            rearmed = following;
+        }
+    }
+
+    /**
+     * A timer in the timing wheel.  Timers are intrusive nodes of the bucket containing them and of the stacks of
+     * scheduled and cancelled timers, so placing or removing a timer does not allocate anything.
+     */
+    protected abstract static class Node {
+
+        /** The time in nanoseconds, relative to the creation of the wheel, the timer expires. */
+        long deadline;
+
+        /** The number of turns of the wheel before the timer expires. */
+        long remainingRounds;
+
+        /** The bucket containing the timer or {@code null} if it has not been placed. */
+        Bucket bucket;
+
+        /** The previous timer of the bucket. */
+        Node prev;
+
+        /** The next timer of the bucket. */
+        Node next;
+
+        /** The next timer of the stack of scheduled timers. */
+        Node nextScheduled;
+
+        /** The next timer of the stack of cancelled timers. */
+        Node nextCancelled;
+
+        /**
+         * Returns {@code true} if the timer should be removed from the wheel without expiring, {@code false} otherwise.
+         *
+         * @return if the timer is cancelled.
+         */
+        abstract boolean isCancelled();
+
+        /**
+         * Expires the timer which was due by the specified deadline of the current tick.
+         *
+         * @param deadline the deadline of the current tick.
+         * @return {@code true} if the timer needs to be placed in the wheel again, {@code false} otherwise.
+         */
+        abstract boolean expire(long deadline);
+    }
+
+    /**
+     * A bucket of the wheel.  Buckets are a doubly linked list of timers so adding and removing a timer is constant
+     * time.  Buckets are only accessed by the worker thread.
+     */
+    protected static final class Bucket {
+
+        /** The first timer of the bucket. */
+        private Node head;
+
+        /** The last timer of the bucket. */
+        private Node tail;
+
+        /**
+         * Adds the specified timer to the end of the bucket.
+         *
+         * @param node the timer to add.
+         */
+        void add(Node node) {
+            node.bucket = this;
+            if (head == null) {
+                head = tail = node;
+            } else {
+                tail.next = node;
+                node.prev = tail;
+                tail = node;
+            }
+        }
+
+        /**
+         * Removes the specified timer from the bucket.
+         *
+         * @param node the timer to remove.
+         * @return the timer following the removed timer.
+         */
+        Node remove(Node node) {
+            final Node next = node.next;
+            if (node.prev != null) {
+                node.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = node.prev;
+            }
+            if (node == head) {
+                head = next;
+            }
+            if (node == tail) {
+                tail = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.bucket = null;
+            return next;
+        }
+    }
+
+    /**
+     * A one-shot timer scheduled on the timing wheel.  A cancelled timer is handed to the worker thread, which removes
+     * it from its bucket on the next tick, so cancelled timers do not stay in the wheel until their deadline.
+     */
+    protected final class Timer extends Node implements TimerHandle {
+
+        /** The state of a timer which is waiting to expire. */
+        static final int WAITING = 0;
+
+        /** The state of a timer which was cancelled. */
+        static final int CANCELLED = 1;
+
+        /** The state of a timer which has expired. */
+        static final int EXPIRED = 2;
+
+        /** The task run when the timer expires. */
+        private final Runnable task;
+
+        /** The state of the timer. */
+        private final AtomicInteger state;
+
+        /** The exception thrown by the task of the expired timer or {@code null}. */
+        private volatile Throwable failure;
+
+        /**
+         * Constructs a new timer for the specified task and deadline.
+         *
+         * @param task the task to run when the timer expires.
+         * @param deadline the time in nanoseconds, relative to the creation of the wheel, the timer expires.
+         */
+        Timer(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+            this.state = new AtomicInteger(WAITING);
+        }
+
+        @Override
+        public boolean cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                pushCancelled(this);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        @Override
+        public Optional<Throwable> getFailure() {
+            return Optional.ofNullable(failure);
+        }
+
+        @Override
+        boolean expire(long deadline) {
+            if (state.compareAndSet(WAITING, EXPIRED)) {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    failure = t;
+                    log.warn("The task of an expired timer threw an exception.", t);
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A timer which can be armed and disarmed any number of times without allocating anything.  Arming the timer while
+     * it is already armed restarts its delay.  Disarming the timer only marks it as disarmed, so it stays in the wheel
+     * until the worker thread reaches it, and arming the timer again before then just moves its deadline.
+     *
+     * <p>The delay of a reusable timer is fixed so each arming has a later deadline than the previous one.  A reusable
+     * timer must not be armed by multiple threads at the same time.
+     */
+    public final class ReusableTimer extends Node {
+
+        /** The task run when the timer expires. */
+        private final LongConsumer task;
+
+        /** The delay in nanoseconds between arming the timer and running the task. */
+        private final long delayNanos;
+
+        /** The deadline the timer is armed for or {@code DISARMED}. */
+        private final AtomicLong armedDeadline;
+
+        /** If the timer is in the wheel or the stack of scheduled timers. */
+        private final AtomicBoolean scheduled;
+
+        /** The deadline of the last arming of the timer. */
+        private long lastDeadline;
+
+        /**
+         * Constructs a new, disarmed, reusable timer for the specified task and delay.
+         *
+         * @param task the task to run when the timer expires.
+         * @param delayNanos the delay in nanoseconds between arming the timer and running the task.
+         */
+        ReusableTimer(LongConsumer task, long delayNanos) {
+            this.task = task;
+            this.delayNanos = delayNanos;
+            this.armedDeadline = new AtomicLong(DISARMED);
+            this.scheduled = new AtomicBoolean(false);
+            this.lastDeadline = DISARMED;
+        }
+
+        /**
+         * Arms the timer to expire after its delay.  If the timer is already armed, its delay is restarted.  The
+         * returned deadline is unique to this arming of the timer and is given to the task if this arming expires.
+         *
+         * @return the deadline of the arming.
+         * @throws StateMachineException if the timing wheel has been stopped.
+         */
+        public long arm() {
+            // Deadlines must be unique even if the timer is armed twice within the resolution of the clock.
+            final long armed = Math.max(now() + delayNanos, lastDeadline + 1);
+            lastDeadline = armed;
+            armedDeadline.set(armed);
+            if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+                deadline = armed;
+                push(this);
+            }
+            return armed;
+        }
+
+        /**
+         * Disarms the timer so it does not expire until it is armed again.
+         */
+        public void disarm() {
+            armedDeadline.set(DISARMED);
+        }
+
+        /**
+         * Returns {@code true} if the timer is armed, {@code false} otherwise.
+         *
+         * @return if the timer is armed.
+         */
+        public boolean isArmed() {
+            return armedDeadline.get() != DISARMED;
+        }
+
+        @Override
+        boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        boolean expire(long deadline) {
+            final long armed = armedDeadline.get();
+            if (armed > deadline) {
+                // The timer was armed again after it was placed.
+                this.deadline = armed;
+                return true;
+            }
+            final boolean expired = armed != DISARMED && armedDeadline.compareAndSet(armed, DISARMED);
+            scheduled.set(false);
+            if (expired) {
+                try {
+                    task.accept(armed);
+                } catch (Throwable t) {
+                    log.warn("The task of an expired timer threw an exception.", t);
+                }
+            }
+            // The timer may have been armed again before it was marked as no longer scheduled.
+            final long rearmed = armedDeadline.get();
+            if (rearmed != DISARMED && scheduled.compareAndSet(false, true)) {
+                this.deadline = rearmed;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Lazily creates the default timing wheel.
+     */
+    private static final class DefaultHolder {
+
+        /** The default timing wheel. */
+        static final TimingWheel INSTANCE = new TimingWheel("infinite-timing-wheel");
+    }
+}
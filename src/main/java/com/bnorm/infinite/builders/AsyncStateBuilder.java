@@ -1,5 +1,6 @@
 package com.bnorm.infinite.builders;
 
+import java.time.Duration;
 import java.util.function.Supplier;
 
 import com.bnorm.infinite.Action;
@@ -139,4 +140,17 @@ public interface AsyncStateBuilder<S, E, C> extends StateBuilder<S, E, C> {
      */
     AsyncStateBuilder<S, E, C> handleAsync(E event, Supplier<S> destination, TransitionGuard<C> guard,
                                            Action<? super S, ? super E, ? super C> action);
+
+    /**
+     * Adds a timeout to the state being built.  Each time the state is entered, a timer is armed and, if the state has
+     * not been exited when the specified timeout expires, the state machine transitions to the specified destination
+     * state.  Arming and disarming the timer does not allocate anything, so timeouts are suitable for states which are
+     * entered very frequently.  A state has at most one timeout.
+     *
+     * @param timeout the duration the state may be in before timing out.
+     * @param destination the destination state of the timeout transition.
+     * @return the current state builder for chaining.
+     * @since 1.3.0
+     */
+    AsyncStateBuilder<S, E, C> after(Duration timeout, S destination);
 }
@@ -1,9 +1,11 @@
 package com.bnorm.infinite.builders;
 
+import java.time.Duration;
 import java.util.function.Supplier;
 
 import com.bnorm.infinite.Action;
 import com.bnorm.infinite.StateMachineStructure;
+import com.bnorm.infinite.StateTimeout;
 import com.bnorm.infinite.Transition;
 import com.bnorm.infinite.TransitionGuard;
 import com.bnorm.infinite.async.AsyncActionFactory;
@@ -174,4 +176,11 @@ public class AsyncStateBuilderBase<S, E, C> extends StateBuilderBase<S, E, C> im
         super.handle(event, destination, guard, asyncActionFactory.create(action));
         return this;
     }
+
+    @Override
+    public AsyncStateBuilderBase<S, E, C> after(Duration timeout, S destination) {
+        final Transition<S, E, C> transition = structure.getTransitionFactory().create(state, destination);
+        structure.getState(state).setTimeout(new StateTimeout<>(timeout, transition));
+        return this;
+    }
 }
@@ -0,0 +1,96 @@
+package com.bnorm.infinite.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.bnorm.infinite.ActionType;
+import com.bnorm.infinite.StateMachineException;
+
+/**
+ * State machine metrics which can be registered with JMX.  The metrics are registered with the platform MBean server
+ * under the {@value #DOMAIN} domain.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class JmxStateMachineMetrics<S, E> extends StateMachineMetricsBase<S, E> implements StateMachineMetricsMXBean {
+
+    /** The JMX domain of state machine metrics. */
+    public static final String DOMAIN = "com.bnorm.infinite";
+
+    /** The object name of the metrics or {@code null} if the metrics are not registered. */
+    private volatile ObjectName objectName;
+
+    /**
+     * Registers the metrics with the platform MBean server with the specified name.
+     *
+     * @param name the name of the metrics, such as the name of the state machine.
+     * @throws StateMachineException if the metrics could not be registered.
+     */
+    public void register(String name) {
+        try {
+            final ObjectName registered = new ObjectName(DOMAIN, "name", ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, registered);
+            objectName = registered;
+        } catch (JMException e) {
+            throw new StateMachineException("Unable to register state machine metrics [" + name + "]", e);
+        }
+    }
+
+    /**
+     * Unregisters the metrics from the platform MBean server if they are registered.
+     *
+     * @throws StateMachineException if the metrics could not be unregistered.
+     */
+    public void unregister() {
+        final ObjectName registered = objectName;
+        if (registered != null) {
+            try {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if (server.isRegistered(registered)) {
+                    server.unregisterMBean(registered);
+                }
+                objectName = null;
+            } catch (JMException e) {
+                throw new StateMachineException("Unable to unregister state machine metrics [" + registered + "]", e);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Long> getTransitionCounts() {
+        final Map<String, Long> counts = new TreeMap<>();
+        transitions.forEach((source, bySource) -> bySource.forEach((event, byEvent) -> byEvent.forEach(
+                (destination, counter) -> counts.put(source + " -[" + event + "]-> " + destination, counter.sum()))));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getIgnoredCounts() {
+        final Map<String, Long> counts = new TreeMap<>();
+        ignored.forEach((state, byState) -> byState.forEach(
+                (event, counter) -> counts.put(state + " -[" + event + "]", counter.sum())));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getEntranceActionLatencySummary() {
+        return getActionLatency(ActionType.Entrance).summarize();
+    }
+
+    @Override
+    public Map<String, Long> getExitActionLatencySummary() {
+        return getActionLatency(ActionType.Exit).summarize();
+    }
+
+    @Override
+    public Map<String, Long> getTransitionActionLatencySummary() {
+        return getTransitionActionLatency().summarize();
+    }
+}
@@ -0,0 +1,177 @@
+package com.bnorm.infinite.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of latencies in nanoseconds.  The buckets of the histogram are log-linear: each power of two
+ * is split into {@value #SUB_BUCKETS} linear sub-buckets, so recorded values are accurate to within 12.5% while the
+ * whole range of {@code long} values fits in a few hundred buckets.  Recording a value does not allocate.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class LatencyHistogram {
+
+    /** The number of bits of each value used to select the sub-bucket within its power of two. */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /** The number of linear sub-buckets of each power of two. */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** The number of buckets needed for all non-negative {@code long} values. */
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /** The number of values recorded in each bucket. */
+    protected final AtomicLongArray buckets;
+
+    /** The number of recorded values. */
+    protected final LongAdder count;
+
+    /** The sum of the recorded values. */
+    protected final LongAdder total;
+
+    /** The maximum recorded value. */
+    protected final LongAccumulator max;
+
+    /**
+     * Constructs a new, empty latency histogram.
+     */
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new LongAdder();
+        this.total = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Records the specified latency.  Negative latencies, which can be measured if the clock is adjusted, are recorded
+     * as zero.
+     *
+     * @param nanos the latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        final long value = Math.max(nanos, 0);
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the number of recorded latencies.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the sum of the recorded latencies in nanoseconds.
+     *
+     * @return the total latency.
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the maximum recorded latency in nanoseconds.
+     *
+     * @return the maximum latency.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded latencies in nanoseconds, or zero if no latencies have been recorded.
+     *
+     * @return the mean latency.
+     */
+    public long getMean() {
+        final long recorded = getCount();
+        return recorded != 0 ? getTotal() / recorded : 0;
+    }
+
+    /**
+     * Returns the latency in nanoseconds which the specified percentage of recorded latencies are less than or equal
+     * to.  The returned latency is the upper bound of the bucket containing the percentile, capped at the maximum
+     * recorded latency.
+     *
+     * @param percentile the percentile between 0 and 100.
+     * @return the latency at the percentile.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            recorded += buckets.get(i);
+        }
+        final long target = Math.max(1, (long) Math.ceil(recorded * Math.min(Math.max(percentile, 0), 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                final long upper = i + 1 < BUCKETS ? lowerBound(i + 1) - 1 : Long.MAX_VALUE;
+                return Math.min(upper, getMax());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Summarizes the histogram as the count, mean, 50th, 90th, 99th, and 99.9th percentiles, and maximum.  Latencies
+     * are in nanoseconds.
+     *
+     * @return the summary of the histogram.
+     */
+    public Map<String, Long> summarize() {
+        final Map<String, Long> summary = new LinkedHashMap<>();
+        summary.put("count", getCount());
+        summary.put("mean", getMean());
+        summary.put("p50", getValueAtPercentile(50));
+        summary.put("p90", getValueAtPercentile(90));
+        summary.put("p99", getValueAtPercentile(99));
+        summary.put("p999", getValueAtPercentile(99.9));
+        summary.put("max", getMax());
+        return summary;
+    }
+
+    /**
+     * Returns the index of the bucket of the specified non-negative value.
+     *
+     * @param value the value.
+     * @return the bucket index.
+     */
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the smallest value of the bucket with the specified index.
+     *
+     * @param index the bucket index.
+     * @return the smallest value of the bucket.
+     */
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram" + summarize();
+    }
+}
@@ -0,0 +1,227 @@
+package com.bnorm.infinite.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.bnorm.infinite.ActionType;
+import com.bnorm.infinite.StateMachineMetrics;
+
+/**
+ * The base implementation of state machine metrics.  Counters are striped {@link LongAdder}s, so a single metrics
+ * instance can be shared by many state machines firing events on different threads, and action timings are recorded
+ * in {@link LatencyHistogram}s.  Once the counter of a transition or ignored event exists, recording it again does not
+ * allocate.
+ *
+ * @param <S> the class type of the states.
+ * @param <E> the class type of the events.
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public class StateMachineMetricsBase<S, E> implements StateMachineMetrics<S, E> {
+
+    /** The key used for {@code null} states and events, which concurrent maps do not support. */
+    protected static final Object NULL_KEY = new Object() {
+        @Override
+        public String toString() {
+            return "null";
+        }
+    };
+
+    /** The transition counters by source state, event, and destination state. */
+    protected final ConcurrentMap<Object, ConcurrentMap<Object, ConcurrentMap<Object, LongAdder>>> transitions;
+
+    /** The ignored event counters by state and event. */
+    protected final ConcurrentMap<Object, ConcurrentMap<Object, LongAdder>> ignored;
+
+    /** The number of guard evaluations. */
+    protected final LongAdder guardEvaluations;
+
+    /** The number of guard evaluations which did not allow the transition. */
+    protected final LongAdder guardRejections;
+
+    /** The latencies of the entrance actions of transitions. */
+    protected final LatencyHistogram entranceActions;
+
+    /** The latencies of the exit actions of transitions. */
+    protected final LatencyHistogram exitActions;
+
+    /** The latencies of the actions of transitions. */
+    protected final LatencyHistogram transitionActions;
+
+    /**
+     * Constructs a new, empty state machine metrics.
+     */
+    public StateMachineMetricsBase() {
+        this.transitions = new ConcurrentHashMap<>();
+        this.ignored = new ConcurrentHashMap<>();
+        this.guardEvaluations = new LongAdder();
+        this.guardRejections = new LongAdder();
+        this.entranceActions = new LatencyHistogram();
+        this.exitActions = new LatencyHistogram();
+        this.transitionActions = new LatencyHistogram();
+    }
+
+    @Override
+    public void transitionPerformed(S source, E event, S destination) {
+        counter(counters(counters(transitions, key(source)), key(event)), key(destination)).increment();
+    }
+
+    @Override
+    public void eventIgnored(S state, E event) {
+        counter(counters(ignored, key(state)), key(event)).increment();
+    }
+
+    @Override
+    public void guardEvaluated(S source, E event, boolean allowed) {
+        guardEvaluations.increment();
+        if (!allowed) {
+            guardRejections.increment();
+        }
+    }
+
+    @Override
+    public void stateActionsPerformed(S state, ActionType type, long nanos) {
+        getActionLatency(type).record(nanos);
+    }
+
+    @Override
+    public void transitionActionPerformed(S source, E event, long nanos) {
+        transitionActions.record(nanos);
+    }
+
+    /**
+     * Returns the number of transitions performed from the specified source state to the specified destination state
+     * caused by the specified event.
+     *
+     * @param source the source state.
+     * @param event the event.
+     * @param destination the destination state.
+     * @return the number of transitions.
+     */
+    public long getTransitionCount(S source, E event, S destination) {
+        final ConcurrentMap<Object, ConcurrentMap<Object, LongAdder>> bySource = transitions.get(key(source));
+        final ConcurrentMap<Object, LongAdder> byEvent = bySource != null ? bySource.get(key(event)) : null;
+        final LongAdder counter = byEvent != null ? byEvent.get(key(destination)) : null;
+        return counter != null ? counter.sum() : 0;
+    }
+
+    /**
+     * Returns the total number of transitions performed.
+     *
+     * @return the number of transitions.
+     */
+    public long getTransitionCount() {
+        long sum = 0;
+        for (ConcurrentMap<Object, ConcurrentMap<Object, LongAdder>> bySource : transitions.values()) {
+            for (ConcurrentMap<Object, LongAdder> byEvent : bySource.values()) {
+                for (LongAdder counter : byEvent.values()) {
+                    sum += counter.sum();
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the number of times the specified event was ignored in the specified state.
+     *
+     * @param state the state.
+     * @param event the event.
+     * @return the number of ignored events.
+     */
+    public long getIgnoredCount(S state, E event) {
+        final ConcurrentMap<Object, LongAdder> byState = ignored.get(key(state));
+        final LongAdder counter = byState != null ? byState.get(key(event)) : null;
+        return counter != null ? counter.sum() : 0;
+    }
+
+    /**
+     * Returns the total number of ignored events.
+     *
+     * @return the number of ignored events.
+     */
+    public long getIgnoredCount() {
+        long sum = 0;
+        for (ConcurrentMap<Object, LongAdder> byState : ignored.values()) {
+            for (LongAdder counter : byState.values()) {
+                sum += counter.sum();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the number of guard evaluations.
+     *
+     * @return the number of guard evaluations.
+     */
+    public long getGuardEvaluations() {
+        return guardEvaluations.sum();
+    }
+
+    /**
+     * Returns the number of guard evaluations which did not allow the transition.
+     *
+     * @return the number of guard rejections.
+     */
+    public long getGuardRejections() {
+        return guardRejections.sum();
+    }
+
+    /**
+     * Returns the latencies of the specified type of state actions.
+     *
+     * @param type the type of the actions.
+     * @return the latency histogram.
+     */
+    public LatencyHistogram getActionLatency(ActionType type) {
+        return type == ActionType.Entrance ? entranceActions : exitActions;
+    }
+
+    /**
+     * Returns the latencies of transition actions.
+     *
+     * @return the latency histogram.
+     */
+    public LatencyHistogram getTransitionActionLatency() {
+        return transitionActions;
+    }
+
+    /**
+     * Returns the key of the specified state or event in the counter maps.
+     *
+     * @param value the state or event.
+     * @return the key.
+     */
+    protected static Object key(Object value) {
+        return value != null ? value : NULL_KEY;
+    }
+
+    /**
+     * Returns the nested counter map for the specified key, creating it if needed.
+     *
+     * @param map the map of nested counter maps.
+     * @param key the key.
+     * @param <V> the class type of the nested map values.
+     * @return the nested counter map.
+     */
+    private static <V> ConcurrentMap<Object, V> counters(ConcurrentMap<Object, ConcurrentMap<Object, V>> map,
+                                                         Object key) {
+        // Try a plain get first since computeIfAbsent may lock even when the key is present
+        final ConcurrentMap<Object, V> counters = map.get(key);
+        return counters != null ? counters : map.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Returns the counter for the specified key, creating it if needed.
+     *
+     * @param map the counter map.
+     * @param key the key.
+     * @return the counter.
+     */
+    private static LongAdder counter(ConcurrentMap<Object, LongAdder> map, Object key) {
+        final LongAdder counter = map.get(key);
+        return counter != null ? counter : map.computeIfAbsent(key, k -> new LongAdder());
+    }
+}
@@ -0,0 +1,77 @@
+package com.bnorm.infinite.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX management interface of state machine metrics.  Latencies are summarized as in {@link
+ * LatencyHistogram#summarize()} and are in nanoseconds.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ * @see JmxStateMachineMetrics
+ */
+public interface StateMachineMetricsMXBean {
+
+    /**
+     * Returns the total number of transitions performed.
+     *
+     * @return the number of transitions.
+     */
+    long getTransitionCount();
+
+    /**
+     * Returns the number of transitions performed keyed by {@code "source -[event]-> destination"}.
+     *
+     * @return the transition counts.
+     */
+    Map<String, Long> getTransitionCounts();
+
+    /**
+     * Returns the total number of ignored events.
+     *
+     * @return the number of ignored events.
+     */
+    long getIgnoredCount();
+
+    /**
+     * Returns the number of ignored events keyed by {@code "state -[event]"}.
+     *
+     * @return the ignored event counts.
+     */
+    Map<String, Long> getIgnoredCounts();
+
+    /**
+     * Returns the number of guard evaluations.
+     *
+     * @return the number of guard evaluations.
+     */
+    long getGuardEvaluations();
+
+    /**
+     * Returns the number of guard evaluations which did not allow the transition.
+     *
+     * @return the number of guard rejections.
+     */
+    long getGuardRejections();
+
+    /**
+     * Returns the summary of the entrance action latencies.
+     *
+     * @return the latency summary.
+     */
+    Map<String, Long> getEntranceActionLatencySummary();
+
+    /**
+     * Returns the summary of the exit action latencies.
+     *
+     * @return the latency summary.
+     */
+    Map<String, Long> getExitActionLatencySummary();
+
+    /**
+     * Returns the summary of the transition action latencies.
+     *
+     * @return the latency summary.
+     */
+    Map<String, Long> getTransitionActionLatencySummary();
+}
@@ -0,0 +1,298 @@
+package com.bnorm.infinite;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Utility class for the Java Flight Recorder events of state machines.  A recording is begun before the measured
+ * work, which returns {@code null} if the event is not enabled, and is ended with the details of the work once it is
+ * done.  Ending a {@code null} recording does nothing, so the events cost a static call when they are not enabled.
+ *
+ * <p>This is the Java 21 version of the class which commits Java Flight Recorder events.  The events are disabled by
+ * default and must be enabled in the recording settings, for example with {@code com.bnorm.infinite.Fire#enabled=true}.
+ * States and events are only converted to strings when the event is committed.
+ *
+ * @author Brian Norman
+ * @since 1.3.0
+ */
+public final class FlightRecorderEvents {
+
+    /** The type of the fire events. */
+    private static final EventType FIRE = EventType.getEventType(FireEvent.class);
+
+    /** The type of the choice events. */
+    private static final EventType CHOICE = EventType.getEventType(ChoiceEvent.class);
+
+    /** The type of the stage events. */
+    private static final EventType STAGE = EventType.getEventType(StageEvent.class);
+
+    /** The type of the queue wait events. */
+    private static final EventType QUEUE_WAIT = EventType.getEventType(QueueWaitEvent.class);
+
+    /**
+     * Returns {@code true} if Java Flight Recorder events are supported by the running Java version, {@code false}
+     * otherwise.
+     *
+     * @return if Java Flight Recorder events are supported.
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Begins the recording of an event being fired.
+     *
+     * @return the recording or {@code null} if the event is not enabled.
+     */
+    public static Object beginFire() {
+        if (!FIRE.isEnabled()) {
+            return null;
+        }
+        final FireEvent recording = new FireEvent();
+        recording.begin();
+        return recording;
+    }
+
+    /**
+     * Ends the recording of an event being fired.
+     *
+     * @param recording the recording or {@code null}.
+     * @param source the state of the state machine when the event was fired.
+     * @param event the event fired.
+     * @param destination the destination state of the transition or {@code null}.
+     * @param transitioned if a transition was performed.
+     */
+    public static void endFire(Object recording, Object source, Object event, Object destination,
+                               boolean transitioned) {
+        if (recording != null) {
+            final FireEvent fire = (FireEvent) recording;
+            fire.end();
+            if (fire.shouldCommit()) {
+                fire.source = String.valueOf(source);
+                fire.event = String.valueOf(event);
+                fire.destination = transitioned ? String.valueOf(destination) : null;
+                fire.transitioned = transitioned;
+                fire.commit();
+            }
+        }
+    }
+
+    /**
+     * Begins the recording of a transition being chosen for an event.
+     *
+     * @return the recording or {@code null} if the event is not enabled.
+     */
+    public static Object beginChoice() {
+        if (!CHOICE.isEnabled()) {
+            return null;
+        }
+        final ChoiceEvent recording = new ChoiceEvent();
+        recording.begin();
+        return recording;
+    }
+
+    /**
+     * Ends the recording of a transition being chosen for an event.
+     *
+     * @param recording the recording or {@code null}.
+     * @param state the state of the state machine.
+     * @param event the event fired.
+     * @param handler the state which handles the chosen transition or {@code null} if the event is ignored.
+     * @param guards the number of guards evaluated.
+     */
+    public static void endChoice(Object recording, Object state, Object event, Object handler, int guards) {
+        if (recording != null) {
+            final ChoiceEvent choice = (ChoiceEvent) recording;
+            choice.end();
+            if (choice.shouldCommit()) {
+                choice.state = String.valueOf(state);
+                choice.event = String.valueOf(event);
+                choice.handler = handler != null ? String.valueOf(handler) : null;
+                choice.guards = guards;
+                choice.commit();
+            }
+        }
+    }
+
+    /**
+     * Begins the recording of a stage of a transition.
+     *
+     * @return the recording or {@code null} if the event is not enabled.
+     */
+    public static Object beginStage() {
+        if (!STAGE.isEnabled()) {
+            return null;
+        }
+        final StageEvent recording = new StageEvent();
+        recording.begin();
+        return recording;
+    }
+
+    /**
+     * Ends the recording of a stage of a transition.
+     *
+     * @param recording the recording or {@code null}.
+     * @param stage the name of the stage, one of {@code "exit"}, {@code "between"}, or {@code "enter"}.
+     * @param source the source state of the transition.
+     * @param event the event which caused the transition.
+     * @param destination the destination state of the transition.
+     */
+    public static void endStage(Object recording, String stage, Object source, Object event, Object destination) {
+        if (recording != null) {
+            final StageEvent transition = (StageEvent) recording;
+            transition.end();
+            if (transition.shouldCommit()) {
+                transition.stage = stage;
+                transition.source = String.valueOf(source);
+                transition.event = String.valueOf(event);
+                transition.destination = String.valueOf(destination);
+                transition.commit();
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the event queue wait of asynchronous state machines is recorded, {@code false}
+     * otherwise.  When recorded, the time each event is queued must be captured.
+     *
+     * @return if the event queue wait is recorded.
+     */
+    public static boolean isQueueWaitEnabled() {
+        return QUEUE_WAIT.isEnabled();
+    }
+
+    /**
+     * Records the time an event waited in the event queue of an asynchronous state machine before being processed.
+     *
+     * @param event the event.
+     * @param nanos the wait time in nanoseconds.
+     * @param injected if the event was injected.
+     */
+    public static void queueWaited(Object event, long nanos, boolean injected) {
+        if (QUEUE_WAIT.isEnabled()) {
+            final QueueWaitEvent recording = new QueueWaitEvent();
+            if (recording.shouldCommit()) {
+                recording.event = String.valueOf(event);
+                recording.waitTime = nanos;
+                recording.injected = injected;
+                recording.commit();
+            }
+        }
+    }
+
+    /**
+     * The event of a state machine event being fired.
+     */
+    @Name("com.bnorm.infinite.Fire")
+    @Label("State Machine Fire")
+    @Description("An event fired to a state machine, including the transition performed")
+    @Category("State Machine")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class FireEvent extends Event {
+
+        /** The state of the state machine when the event was fired. */
+        @Label("Source")
+        String source;
+
+        /** The event fired. */
+        @Label("Event")
+        String event;
+
+        /** The destination state of the transition or {@code null}. */
+        @Label("Destination")
+        String destination;
+
+        /** If a transition was performed. */
+        @Label("Transitioned")
+        boolean transitioned;
+    }
+
+    /**
+     * The event of a transition being chosen for a state machine event.
+     */
+    @Name("com.bnorm.infinite.Choice")
+    @Label("State Machine Transition Choice")
+    @Description("The transition chosen for an event fired to a state machine, including the guards evaluated")
+    @Category("State Machine")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ChoiceEvent extends Event {
+
+        /** The state of the state machine. */
+        @Label("State")
+        String state;
+
+        /** The event fired. */
+        @Label("Event")
+        String event;
+
+        /** The state which handles the chosen transition or {@code null} if the event is ignored. */
+        @Label("Handler")
+        String handler;
+
+        /** The number of guards evaluated. */
+        @Label("Guards")
+        int guards;
+    }
+
+    /**
+     * The event of a stage of a state machine transition.
+     */
+    @Name("com.bnorm.infinite.Stage")
+    @Label("State Machine Transition Stage")
+    @Description("The exit, between, or enter stage of a state machine transition")
+    @Category("State Machine")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class StageEvent extends Event {
+
+        /** The name of the stage. */
+        @Label("Stage")
+        String stage;
+
+        /** The source state of the transition. */
+        @Label("Source")
+        String source;
+
+        /** The event which caused the transition. */
+        @Label("Event")
+        String event;
+
+        /** The destination state of the transition. */
+        @Label("Destination")
+        String destination;
+    }
+
+    /**
+     * The event of a state machine event waiting in the event queue of an asynchronous state machine.
+     */
+    @Name("com.bnorm.infinite.QueueWait")
+    @Label("State Machine Queue Wait")
+    @Description("The time an event waited in the event queue of an asynchronous state machine")
+    @Category("State Machine")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class QueueWaitEvent extends Event {
+
+        /** The event. */
+        @Label("Event")
+        String event;
+
+        /** The time the event waited in the event queue. */
+        @Label("Wait Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long waitTime;
+
+        /** If the event was injected. */
+        @Label("Injected")
+        boolean injected;
+    }
+}
@@ -1,10 +1,13 @@
 package com.bnorm.infinite;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.Assert;
@@ -409,4 +412,114 @@ public class InternalStateTest {
         grandchild1_1.enter(null, transition, actions);
         Assert.assertEquals(Collections.<String>emptyList(), actions);
     }
+
+    /**
+     * JUnit test for {@link CompiledInternalState}.
+     *
+     * Tests that compiled internal states have the same hierarchy and perform the same entrance and exit actions as the
+     * internal states they were compiled from.
+     */
+    @Test
+    public void testCompile() {
+        InternalState<String, Void, List<String>> grandparent = new InternalStateBase<>("Grandparent");
+        InternalState<String, Void, List<String>> parent = new InternalStateBase<>("Parent");
+        InternalState<String, Void, List<String>> child1 = new InternalStateBase<>("Child1");
+        InternalState<String, Void, List<String>> child2 = new InternalStateBase<>("Child2");
+        InternalState<String, Void, List<String>> grandchild1_1 = new InternalStateBase<>("Grandchild1-1");
+        InternalState<String, Void, List<String>> grandchild1_2 = new InternalStateBase<>("Grandchild1-2");
+        InternalState<String, Void, List<String>> grandchild2_1 = new InternalStateBase<>("Grandchild2-1");
+        InternalState<String, Void, List<String>> other = new InternalStateBase<>("Other");
+        List<InternalState<String, Void, List<String>>> states = Arrays.asList(grandparent, parent, child1, child2,
+                                                                               grandchild1_1, grandchild1_2,
+                                                                               grandchild2_1, other);
+
+        parent.setParentState(grandparent);
+        grandparent.addChild(parent);
+        child1.setParentState(parent);
+        child2.setParentState(parent);
+        parent.addChild(child1);
+        parent.addChild(child2);
+        grandchild1_1.setParentState(child1);
+        grandchild1_2.setParentState(child1);
+        grandchild2_1.setParentState(child2);
+        child1.addChild(grandchild1_1);
+        child1.addChild(grandchild1_2);
+        child2.addChild(grandchild2_1);
+
+        Action<String, Void, List<String>> action = (s, e, t, c) -> c.add(s);
+        for (InternalState<String, Void, List<String>> state : states) {
+            state.addEntranceAction(action);
+            state.addExitAction(action);
+        }
+        child1.setTimeout(new StateTimeout<>(Duration.ofSeconds(1), null));
+
+        Map<String, CompiledInternalState<String, Void, List<String>>> compiled = new HashMap<>();
+        CompiledInternalState.compile(states, compiled);
+        Assert.assertEquals(states.size(), compiled.size());
+
+        List<String> outside = Arrays.asList("", null);
+        for (InternalState<String, Void, List<String>> state : states) {
+            InternalState<String, Void, List<String>> compiledState = compiled.get(state.getState());
+            Assert.assertEquals(state.getState(), compiledState.getState());
+            Assert.assertEquals(state.getDepth(), compiledState.getDepth());
+            Assert.assertEquals(state.getParentState().map(InternalState::getState),
+                                compiledState.getParentState().map(InternalState::getState));
+            Assert.assertEquals(state.getChildrenStates().size(), compiledState.getChildrenStates().size());
+            Assert.assertEquals(state == child1 || state.isParent("Child1"), state.isTimed());
+            Assert.assertEquals(state.isTimed(), compiledState.isTimed());
+
+            for (String s : outside) {
+                Assert.assertFalse(compiledState.isParent(s));
+                Assert.assertFalse(compiledState.isChild(s));
+                assertSameActions(state, compiledState, s, state.getState());
+                assertSameActions(state, compiledState, state.getState(), s);
+            }
+
+            for (InternalState<String, Void, List<String>> next : states) {
+                InternalState<String, Void, List<String>> compiledNext = compiled.get(next.getState());
+                Assert.assertEquals(state.isParent(next.getState()), compiledState.isParent(next.getState()));
+                Assert.assertEquals(state.isChild(next.getState()), compiledState.isChild(next.getState()));
+                Assert.assertEquals(state.getCommonAncestor(next).map(InternalState::getState),
+                                    compiledState.getCommonAncestor(compiledNext).map(InternalState::getState));
+                assertSameActions(state, compiledState, state.getState(), next.getState());
+                assertSameActions(state, compiledState, next.getState(), state.getState());
+            }
+        }
+
+        try {
+            compiled.get("Parent").addChild(other);
+            Assert.fail();
+        } catch (StateMachineException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Asserts that the specified internal state and compiled internal state perform the same entrance and exit actions
+     * for a transition between the specified states.
+     *
+     * @param state the internal state.
+     * @param compiledState the compiled internal state.
+     * @param source the source state of the transition.
+     * @param destination the destination state of the transition.
+     */
+    private static void assertSameActions(InternalState<String, Void, List<String>> state,
+                                          InternalState<String, Void, List<String>> compiledState, String source,
+                                          String destination) {
+        Transition<String, Void, List<String>> transition = new TransitionBase<>(source, () -> destination,
+                                                                                 TransitionGuard.none(),
+                                                                                 Action.noAction());
+        List<String> expected = new ArrayList<>();
+        List<String> actual = new ArrayList<>();
+
+        state.exit(null, transition, expected);
+        compiledState.exit(null, transition, actual);
+        Assert.assertEquals(expected, actual);
+
+        expected.clear();
+        actual.clear();
+        state.enter(null, transition, expected);
+        compiledState.enter(null, transition, actual);
+        Assert.assertEquals(expected, actual);
+    }
 }
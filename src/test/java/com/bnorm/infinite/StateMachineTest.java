@@ -1,11 +1,22 @@
 package com.bnorm.infinite;
 
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.ObjectName;
 
 import com.bnorm.infinite.builders.StateMachineBuilder;
+import com.bnorm.infinite.builders.StateMachineBuilderFactoryBase;
 import com.bnorm.infinite.builders.StateMachineBuilders;
+import com.bnorm.infinite.metrics.JmxStateMachineMetrics;
+import com.sun.management.ThreadMXBean;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
 /**
@@ -160,4 +171,339 @@ public class StateMachineTest {
         Assert.assertEquals("Active", dvdplayerTransition.get().getSource());
         Assert.assertEquals("Stopped", dvdplayerTransition.get().getDestination());
     }
+
+    /**
+     * JUnit test for {@link StateMachineStructure#compile()}.
+     */
+    @Test
+    public void testCompile() {
+        // DVD Player state machine
+        AtomicBoolean containsDVD = new AtomicBoolean(false);
+        StateMachineStructure<String, String, AtomicBoolean> structure = StateMachineStructures.create();
+        StateMachineBuilder<String, String, AtomicBoolean> dvdplayerBuilder;
+        dvdplayerBuilder = new StateMachineBuilderFactoryBase<String, String, AtomicBoolean>().create(structure);
+        dvdplayerBuilder.configure("Stopped").handle("play", "Playing", AtomicBoolean::get);
+        dvdplayerBuilder.configure("Active").handle("stop", "Stopped");
+        dvdplayerBuilder.configure("Playing").childOf("Active").handle("pause", "Paused");
+        dvdplayerBuilder.configure("Paused").childOf("Active").handle("play", "Playing");
+        StateMachineStructure<String, String, AtomicBoolean> compiled = structure.compile();
+        StateMachine<String, String, AtomicBoolean> dvdplayer = StateMachines.create(compiled, "Stopped", containsDVD);
+        Optional<Transition<String, String, AtomicBoolean>> dvdplayerTransition;
+
+        Assert.assertSame(compiled, compiled.compile());
+        Assert.assertEquals(1, compiled.getTransitions("Stopped", "play").size());
+        Assert.assertEquals(1, compiled.getTransitions("Paused", "play").size());
+        Assert.assertEquals(1, compiled.getTransitions("Paused", "stop").size());
+        Assert.assertTrue(compiled.getTransitions("Stopped", "pause").isEmpty());
+        Assert.assertTrue(compiled.getTransitions("Fake", "play").isEmpty());
+
+        dvdplayerTransition = dvdplayer.fire("play");
+        Assert.assertFalse(dvdplayerTransition.isPresent());
+
+        containsDVD.set(true);
+        dvdplayerTransition = dvdplayer.fire("play");
+        Assert.assertTrue(dvdplayerTransition.isPresent());
+        Assert.assertEquals("Stopped", dvdplayerTransition.get().getSource());
+        Assert.assertEquals("Playing", dvdplayerTransition.get().getDestination());
+
+        dvdplayerTransition = dvdplayer.fire("pause");
+        Assert.assertTrue(dvdplayerTransition.isPresent());
+        Assert.assertEquals("Playing", dvdplayerTransition.get().getSource());
+        Assert.assertEquals("Paused", dvdplayerTransition.get().getDestination());
+
+        dvdplayerTransition = dvdplayer.fire("stop");
+        Assert.assertTrue(dvdplayerTransition.isPresent());
+        Assert.assertEquals("Active", dvdplayerTransition.get().getSource());
+        Assert.assertEquals("Stopped", dvdplayerTransition.get().getDestination());
+
+        // Changes to the original structure are not seen by the compiled structure
+        dvdplayerBuilder.configure("Stopped").handle("eject", "Stopped");
+        dvdplayerTransition = dvdplayer.fire("eject");
+        Assert.assertFalse(dvdplayerTransition.isPresent());
+
+        try {
+            compiled.addTransition("eject", compiled.getTransitionFactory().create("Stopped", "Stopped"));
+            Assert.fail();
+        } catch (StateMachineException ignore) {
+        }
+    }
+
+    /**
+     * JUnit test for {@link StateMachine#fireFast(Object)}.
+     *
+     * Tests that firing events on a compiled structure does not allocate once the state machine has warmed up.
+     */
+    @Test
+    public void testFireFast() {
+        ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        // DVD Player state machine
+        AtomicBoolean containsDVD = new AtomicBoolean(true);
+        AtomicInteger count = new AtomicInteger();
+        StateMachineStructure<String, String, AtomicBoolean> structure = StateMachineStructures.create();
+        StateMachineBuilder<String, String, AtomicBoolean> dvdplayerBuilder;
+        dvdplayerBuilder = new StateMachineBuilderFactoryBase<String, String, AtomicBoolean>().create(structure);
+        dvdplayerBuilder.configure("Stopped").handle("play", "Playing", AtomicBoolean::get);
+        dvdplayerBuilder.configure("Active")
+                        .handle("stop", "Stopped")
+                        .onEntry((state, event, transition, context) -> count.incrementAndGet());
+        dvdplayerBuilder.configure("Playing")
+                        .childOf("Active")
+                        .handle("pause", "Paused")
+                        .onExit((state, event, transition, context) -> count.incrementAndGet());
+        dvdplayerBuilder.configure("Paused").childOf("Active").handle("play", "Playing");
+        StateMachine<String, String, AtomicBoolean> dvdplayer = StateMachines.create(structure.compile(), "Stopped",
+                                                                                   containsDVD);
+        dvdplayer.addTransitionListener((stage, event, transition, context) -> count.incrementAndGet());
+
+        String[] events = {"play", "pause", "play", "stop", "pause"};
+        for (int i = 0; i < 100_000; i++) {
+            dvdplayer.fireFast(events[i % events.length]);
+        }
+
+        int iterations = 100_000;
+        count.set(0);
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            dvdplayer.fireFast(events[i % events.length]);
+        }
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        Assert.assertEquals("Stopped", dvdplayer.getState());
+        Assert.assertTrue(count.get() > iterations);
+        // Only reading the allocated bytes may allocate, any allocation within fireFast would be per event
+        Assert.assertTrue("Allocated [" + allocated + "] bytes", allocated <= 256);
+    }
+
+    /**
+     * JUnit test for {@link StateMachine#fireAll(Iterable)}.
+     */
+    @Test
+    public void testFireAll() {
+        StateMachineBuilder<String, String, Void> builder = StateMachineBuilders.create();
+        builder.configure("Stopped").handle("play", "Playing");
+        builder.configure("Playing").handle("pause", "Paused").handle("stop", "Stopped");
+        builder.configure("Paused").handle("play", "Playing").handle("stop", "Stopped");
+        StateMachine<String, String, Void> machine = builder.build("Stopped", null);
+        AtomicInteger count = new AtomicInteger();
+        machine.addTransitionListener((stage, event, transition, context) -> count.incrementAndGet());
+
+        FireSummary<String> summary = machine.fireAll(Arrays.asList("play", "play", "pause", "stop", "stop"));
+        Assert.assertEquals(3, summary.getTaken());
+        Assert.assertEquals(2, summary.getIgnored());
+        Assert.assertEquals("Stopped", summary.getState());
+        Assert.assertEquals(3 * TransitionStage.values().length, count.get());
+
+        String[] events = {"stop", "play", "pause", "play"};
+        summary = machine.fireAll(events, 1, 3);
+        Assert.assertEquals(2, summary.getFired());
+        Assert.assertEquals("Paused", summary.getState());
+
+        try {
+            machine.fireAll(events, 3, 5);
+            Assert.fail();
+        } catch (StateMachineException ignore) {
+        }
+    }
+
+    /**
+     * JUnit test for {@link StateMachine#addTransitionListener(Set, TransitionFilter, TransitionListener)}.
+     */
+    @Test
+    public void testStageListeners() {
+        StateMachineBuilder<String, String, Void> builder = StateMachineBuilders.create();
+        builder.configure("Stopped").handle("play", "Playing");
+        builder.configure("Playing").handle("pause", "Paused").handle("stop", "Stopped");
+        builder.configure("Paused").handle("play", "Playing").handle("stop", "Stopped");
+        StateMachine<String, String, Void> machine = builder.build("Stopped", null);
+        AtomicInteger after = new AtomicInteger();
+        AtomicInteger stopped = new AtomicInteger();
+        TransitionListener<String, String, Void> listener = (stage, event, transition, context) -> {
+            Assert.assertEquals(TransitionStage.After, stage);
+            after.incrementAndGet();
+        };
+        // Adding the listener again replaces its stages and adding it the same way again does nothing
+        machine.addTransitionListener(EnumSet.of(TransitionStage.Before), listener);
+        machine.addTransitionListener(EnumSet.of(TransitionStage.After), listener);
+        machine.addTransitionListener(EnumSet.of(TransitionStage.After), listener);
+        TransitionListener<String, String, Void> stopping;
+        stopping = (stage, event, transition, context) -> stopped.incrementAndGet();
+        Set<TransitionStage> stages = EnumSet.of(TransitionStage.Before, TransitionStage.After);
+        machine.addTransitionListener(stages, TransitionFilter.forEvent("stop"), stopping);
+
+        machine.fireAll(Arrays.asList("play", "pause", "stop", "play", "stop"));
+        Assert.assertEquals(5, after.get());
+        Assert.assertEquals(4, stopped.get());
+
+        // Adding the listener again with a different filter replaces its filter
+        machine.addTransitionListener(stages, TransitionFilter.forEvent("play"), stopping);
+        machine.fireAll(Arrays.asList("play", "stop"));
+        Assert.assertEquals(6, stopped.get());
+
+        try {
+            machine.addTransitionListener(EnumSet.noneOf(TransitionStage.class), listener);
+            Assert.fail();
+        } catch (StateMachineException ignore) {
+        }
+    }
+
+    /**
+     * JUnit test for {@link StateMachineFleet}.
+     */
+    @Test
+    public void testFleet() {
+        StateMachineStructure<String, String, Void> structure = StateMachineStructures.create();
+        StateMachineBuilder<String, String, Void> builder;
+        builder = new StateMachineBuilderFactoryBase<String, String, Void>().create(structure);
+        builder.configure("Stopped").handle("play", "Playing");
+        builder.configure("Playing").handle("stop", "Stopped").handle("eject", "Ejected");
+        AtomicInteger count = new AtomicInteger();
+        StateMachineFleet<String, String, Void> fleet;
+        fleet = new StateMachineFleetBase<>(structure, Arrays.asList("Stopped", "Playing"), 1_000, "Stopped", null, 64);
+        fleet.addTransitionListener((stage, event, transition, context) -> count.incrementAndGet());
+
+        Assert.assertEquals(1_000, fleet.size());
+        Assert.assertTrue(fleet.fireFast(7, "play"));
+        Assert.assertFalse(fleet.fire(7, "play").isPresent());
+        Assert.assertEquals("Playing", fleet.getState(7));
+        Assert.assertEquals("Stopped", fleet.getState(8));
+        Assert.assertEquals(TransitionStage.values().length, count.get());
+
+        // Transitions to states outside of the fleet are rejected before any listener is notified
+        try {
+            fleet.fire(7, "eject");
+            Assert.fail();
+        } catch (StateMachineException ignore) {
+        }
+        Assert.assertEquals("Playing", fleet.getState(7));
+        Assert.assertEquals(TransitionStage.values().length, count.get());
+
+        // Bulk fire in parallel chunks
+        count.set(0);
+        FleetSummary<String> summary = fleet.fireAllParallel("play", ForkJoinPool.commonPool());
+        Assert.assertEquals(999, summary.getTaken());
+        Assert.assertEquals(1, summary.getIgnored());
+        Assert.assertEquals(1_000, summary.getCount("Playing"));
+        Assert.assertEquals(TransitionStage.values().length * 999, count.get());
+
+        String[] events = new String[fleet.size()];
+        Arrays.fill(events, 0, 100, "stop");
+        summary = fleet.fireAll(events);
+        Assert.assertEquals(100, summary.getTaken());
+        Assert.assertEquals(0, summary.getIgnored());
+        Assert.assertEquals(100, summary.getCount("Stopped"));
+        Assert.assertEquals(900, summary.getCount("Playing"));
+    }
+
+    /**
+     * JUnit test for {@link StateMachine#setMetrics(StateMachineMetrics)}.
+     *
+     * @throws Exception on MBean attribute get.
+     */
+    @Test
+    public void testMetrics() throws Exception {
+        StateMachineBuilder<String, String, AtomicBoolean> builder = StateMachineBuilders.create();
+        builder.configure("Stopped").handle("play", "Playing", AtomicBoolean::get);
+        builder.configure("Playing").handle("stop", "Stopped");
+        AtomicBoolean containsDVD = new AtomicBoolean(false);
+        StateMachine<String, String, AtomicBoolean> machine = builder.build("Stopped", containsDVD);
+        JmxStateMachineMetrics<String, String> metrics = new JmxStateMachineMetrics<>();
+        machine.setMetrics(metrics);
+
+        machine.fire("play");
+        machine.fire("stop");
+        containsDVD.set(true);
+        machine.fire("play");
+        machine.fire("stop");
+        machine.setMetrics(null);
+        machine.fire("play");
+
+        Assert.assertEquals(1, metrics.getTransitionCount("Stopped", "play", "Playing"));
+        Assert.assertEquals(2, metrics.getTransitionCount());
+        Assert.assertEquals(2, metrics.getIgnoredCount());
+        Assert.assertEquals(1, metrics.getIgnoredCount("Stopped", "stop"));
+        Assert.assertEquals(3, metrics.getGuardEvaluations());
+        Assert.assertEquals(1, metrics.getGuardRejections());
+        Assert.assertEquals(2, metrics.getActionLatency(ActionType.Entrance).getCount());
+        Assert.assertEquals(2, metrics.getTransitionActionLatency().getCount());
+
+        metrics.register("testMetrics");
+        try {
+            ObjectName name = new ObjectName(JmxStateMachineMetrics.DOMAIN, "name", ObjectName.quote("testMetrics"));
+            Object count = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "TransitionCount");
+            Assert.assertEquals(2L, count);
+        } finally {
+            metrics.unregister();
+        }
+    }
+
+    /** DVD player states. */
+    private enum DvdState {
+        Stopped, Active, Playing, Paused
+    }
+
+    /** DVD player events. */
+    private enum DvdEvent {
+        play, pause, stop, eject
+    }
+
+    /**
+     * JUnit test for {@link EnumStateMachineStructure}.
+     */
+    @Test
+    public void testEnumStructure() {
+        // DVD Player state machine
+        AtomicBoolean containsDVD = new AtomicBoolean(false);
+        StateMachineStructure<DvdState, DvdEvent, AtomicBoolean> structure;
+        structure = StateMachineStructures.create(DvdState.class, DvdEvent.class);
+        StateMachineBuilder<DvdState, DvdEvent, AtomicBoolean> dvdplayerBuilder;
+        dvdplayerBuilder = new StateMachineBuilderFactoryBase<DvdState, DvdEvent, AtomicBoolean>().create(structure);
+        dvdplayerBuilder.configure(DvdState.Stopped).handle(DvdEvent.play, DvdState.Playing, AtomicBoolean::get);
+        dvdplayerBuilder.configure(DvdState.Active).handle(DvdEvent.stop, DvdState.Stopped);
+        dvdplayerBuilder.configure(DvdState.Playing).childOf(DvdState.Active).handle(DvdEvent.pause, DvdState.Paused);
+        dvdplayerBuilder.configure(DvdState.Paused).childOf(DvdState.Active).handle(DvdEvent.play, DvdState.Playing);
+
+        Assert.assertEquals(2, structure.getTransitions(DvdEvent.play).size());
+        Assert.assertTrue(structure.getTransitions(DvdEvent.eject).isEmpty());
+        Assert.assertEquals(1, structure.getTransitions(DvdState.Paused, DvdEvent.stop).size());
+        Assert.assertEquals(DvdState.Active,
+                            structure.getTransitions(DvdState.Paused, DvdEvent.stop).get(0).get(0).getSource());
+        Assert.assertTrue(structure.getTransitions(DvdState.Stopped, DvdEvent.stop).isEmpty());
+        Assert.assertSame(structure.getTransitions(DvdState.Paused, DvdEvent.stop),
+                          structure.getTransitions(DvdState.Paused, DvdEvent.stop));
+        Assert.assertTrue(structure.getTransitions(null).isEmpty());
+        Assert.assertSame(structure.getState(DvdState.Paused), structure.getState(DvdState.Paused));
+        Assert.assertTrue(structure.getState(DvdState.Active).isChild(DvdState.Paused));
+
+        for (StateMachineStructure<DvdState, DvdEvent, AtomicBoolean> s : Arrays.asList(structure,
+                                                                                     structure.compile())) {
+            containsDVD.set(false);
+            StateMachine<DvdState, DvdEvent, AtomicBoolean> dvdplayer;
+            dvdplayer = StateMachines.create(s, DvdState.Stopped, containsDVD);
+
+            Assert.assertFalse(dvdplayer.fire(DvdEvent.play).isPresent());
+            containsDVD.set(true);
+            Assert.assertTrue(dvdplayer.fire(DvdEvent.play).isPresent());
+            Assert.assertEquals(DvdState.Playing, dvdplayer.getState());
+            Assert.assertTrue(dvdplayer.fire(DvdEvent.pause).isPresent());
+            Assert.assertEquals(DvdState.Paused, dvdplayer.getState());
+            Assert.assertFalse(dvdplayer.fire(DvdEvent.eject).isPresent());
+            Assert.assertTrue(dvdplayer.fire(DvdEvent.stop).isPresent());
+            Assert.assertEquals(DvdState.Stopped, dvdplayer.getState());
+        }
+
+        // Adding a transition replaces the cached possible transitions of the event
+        structure.addTransition(DvdEvent.stop, structure.getTransitionFactory().create(DvdState.Paused,
+                                                                                     DvdState.Stopped));
+        Assert.assertEquals(2, structure.getTransitions(DvdState.Paused, DvdEvent.stop).size());
+
+        try {
+            structure.addTransition(null, structure.getTransitionFactory().create(DvdState.Stopped, DvdState.Stopped));
+            Assert.fail();
+        } catch (StateMachineException ignore) {
+        }
+    }
 }
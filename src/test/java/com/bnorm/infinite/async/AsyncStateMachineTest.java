@@ -1,16 +1,34 @@
 package com.bnorm.infinite.async;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
+import com.bnorm.infinite.Action;
+import com.bnorm.infinite.FireSummary;
+import com.bnorm.infinite.StateMachineException;
 import com.bnorm.infinite.StateMachineStructures;
 import com.bnorm.infinite.Transition;
 import com.bnorm.infinite.TransitionGuard;
+import com.bnorm.infinite.TransitionListener;
+import com.bnorm.infinite.TransitionStage;
+import com.bnorm.infinite.builders.AsyncStateBuilderFactoryBase;
 import com.bnorm.infinite.builders.AsyncStateMachineBuilder;
+import com.bnorm.infinite.builders.AsyncStateMachineBuilderFactoryBase;
 import com.bnorm.infinite.builders.AsyncStateMachineBuilders;
 import org.junit.Assert;
 import org.junit.Test;
@@ -199,4 +217,743 @@ public class AsyncStateMachineTest {
         Assert.assertEquals("Active", dvdplayerTransition9.get().getSource());
         Assert.assertEquals("Stopped", dvdplayerTransition9.get().getDestination());
     }
+
+    /**
+     * JUnit test for {@link AsyncStateMachine#run()} repeatedly handed over to new threads without being stopped.
+     *
+     * @throws Exception on Future get.
+     */
+    @Test
+    public void testHandover() throws Exception {
+        AsyncStateMachineBuilder<String, String, Void> builder = AsyncStateMachineBuilders.create();
+        builder.configure("On").handle("toggle", "Off");
+        builder.configure("Off").handle("toggle", "On");
+        AsyncStateMachine<String, String, Void> machine = builder.build("On", null);
+
+        for (int i = 0; i < 200; i++) {
+            Thread thread = new Thread(machine);
+            thread.setDaemon(true);
+            thread.start();
+            // Without the event being processed the future would never complete.
+            Assert.assertTrue(machine.submit("toggle").get(10, TimeUnit.SECONDS).isPresent());
+        }
+        machine.stop();
+        Assert.assertEquals("On", machine.getState());
+    }
+
+    /**
+     * JUnit test for {@link AsyncStateMachine#submit(Object)} and {@link AsyncStateMachine#inject(Object)} from many
+     * producer threads.
+     *
+     * @throws InterruptedException on Future get.
+     * @throws ExecutionException on Future get.
+     */
+    @Test
+    public void testProducers() throws ExecutionException, InterruptedException {
+        int producers = 8;
+        int events = 1_000;
+        List<Integer> processed = new ArrayList<>();
+        AsyncStateMachineBuilder<String, Integer, List<Integer>> counterBuilder = AsyncStateMachineBuilders.create();
+        for (int i = 0; i < producers; i++) {
+            counterBuilder.configure("Counting").handle(i, (state, event, transition, context) -> context.add(event));
+        }
+        AsyncStateMachine<String, Integer, List<Integer>> counter = counterBuilder.build("Counting", processed);
+
+        // Injected events are processed before submitted events
+        Future<Optional<Transition<String, Integer, List<Integer>>>> submitted = counter.submit(0);
+        Future<Optional<Transition<String, Integer, List<Integer>>>> injected1 = counter.inject(1);
+        Future<Optional<Transition<String, Integer, List<Integer>>>> injected2 = counter.inject(2);
+
+        Thread counterThread = new Thread(counter);
+        counterThread.start();
+
+        Assert.assertTrue(submitted.get().isPresent());
+        Assert.assertTrue(injected1.get().isPresent());
+        Assert.assertTrue(injected2.get().isPresent());
+        Assert.assertEquals(Arrays.asList(1, 2, 0), processed);
+        processed.clear();
+
+        List<Thread> threads = new ArrayList<>();
+        List<Future<Optional<Transition<String, Integer, List<Integer>>>>> futures = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            final int producer = i;
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < events; j++) {
+                    futures.add(counter.submit(producer));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Future<Optional<Transition<String, Integer, List<Integer>>>> future : futures) {
+            Assert.assertTrue(future.get().isPresent());
+        }
+
+        Assert.assertEquals(producers * events, processed.size());
+        for (int i = 0; i < producers; i++) {
+            Assert.assertEquals(events, Collections.frequency(processed, i));
+        }
+
+        counter.stop();
+    }
+
+    /**
+     * JUnit test for {@link AsyncStateMachine#start(AsyncStateMachineScheduler)}.
+     *
+     * @throws InterruptedException on Future get.
+     * @throws ExecutionException on Future get.
+     */
+    @Test
+    public void testScheduler() throws ExecutionException, InterruptedException {
+        int machines = 1_000;
+        int events = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AsyncStateMachineScheduler scheduler = new AsyncStateMachineScheduler(executor, 8);
+
+        AsyncStateMachineBuilder<String, Integer, List<Integer>> counterBuilder = AsyncStateMachineBuilders.create();
+        for (int i = 0; i < events; i++) {
+            counterBuilder.configure("Counting").handle(i, (state, event, transition, context) -> context.add(event));
+        }
+
+        List<AsyncStateMachine<String, Integer, List<Integer>>> counters = new ArrayList<>();
+        List<Future<Optional<Transition<String, Integer, List<Integer>>>>> futures = new ArrayList<>();
+        for (int i = 0; i < machines; i++) {
+            AsyncStateMachine<String, Integer, List<Integer>> counter = counterBuilder.build("Counting",
+                                                                                            new ArrayList<>());
+            scheduler.start(counter);
+            Assert.assertTrue(counter.isRunning());
+            counters.add(counter);
+        }
+        for (int j = 0; j < events; j++) {
+            for (AsyncStateMachine<String, Integer, List<Integer>> counter : counters) {
+                futures.add(counter.submit(j));
+            }
+        }
+        for (Future<Optional<Transition<String, Integer, List<Integer>>>> future : futures) {
+            Assert.assertTrue(future.get().isPresent());
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int j = 0; j < events; j++) {
+            expected.add(j);
+        }
+        for (AsyncStateMachine<String, Integer, List<Integer>> counter : counters) {
+            Assert.assertEquals(expected, counter.getContext());
+        }
+
+        // A scheduled state machine can be stopped and run on a thread
+        AsyncStateMachine<String, Integer, List<Integer>> counter = counters.get(0);
+        try {
+            scheduler.start(counter);
+            Assert.fail();
+        } catch (StateMachineException ignore) {
+        }
+        counter.stop();
+        Assert.assertFalse(counter.isRunning());
+        counter.getContext().clear();
+        Thread counterThread = new Thread(counter);
+        counterThread.start();
+        Assert.assertTrue(counter.fire(0).isPresent());
+        Assert.assertEquals(Collections.singletonList(0), counter.getContext());
+        counter.stop();
+
+        executor.shutdown();
+
+        // A rejected drain task does not stop the state machine from being scheduled again
+        List<Runnable> tasks = new ArrayList<>();
+        AtomicBoolean reject = new AtomicBoolean(false);
+        AsyncStateMachineScheduler manual = new AsyncStateMachineScheduler(task -> {
+            if (reject.get()) {
+                throw new RejectedExecutionException();
+            }
+            tasks.add(task);
+        });
+        AsyncStateMachineBuilder<String, String, Void> switchBuilder = AsyncStateMachineBuilders.create();
+        switchBuilder.configure("Off").handle("toggle", "On");
+        switchBuilder.configure("On").handle("toggle", "Off");
+        switchBuilder.configure("On").handle("fail", (state, event, transition, context) -> {
+            throw new IllegalStateException();
+        });
+        AsyncStateMachine<String, String, Void> lightSwitch = switchBuilder.build("Off", null);
+        manual.start(lightSwitch);
+        tasks.remove(0).run();
+        reject.set(true);
+        try {
+            lightSwitch.submit("toggle");
+            Assert.fail();
+        } catch (RejectedExecutionException ignore) {
+        }
+        reject.set(false);
+        Future<Optional<Transition<String, String, Void>>> toggled = lightSwitch.submit("toggle");
+        Assert.assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        Assert.assertTrue(toggled.get().isPresent());
+        Assert.assertEquals("Off", lightSwitch.getState());
+
+        // An event failing on the scheduler fails the queued events instead of throwing into the executor
+        lightSwitch.submit("toggle");
+        CompletableFuture<Optional<Transition<String, String, Void>>> failed = lightSwitch.submit("fail");
+        CompletableFuture<Optional<Transition<String, String, Void>>> queued = lightSwitch.submit("toggle");
+        Assert.assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        Assert.assertTrue(failed.isCompletedExceptionally());
+        Assert.assertTrue(queued.isCompletedExceptionally());
+        Assert.assertFalse(lightSwitch.isRunning());
+    }
+
+    /**
+     * JUnit test for {@link AsyncActionFactoryBase} and {@link AsyncTransitionListenerFactoryBase} with an injected
+     * executor and for running asynchronous state machines on virtual threads when they are supported.
+     *
+     * @throws InterruptedException on Future get.
+     * @throws ExecutionException on Future get.
+     */
+    @Test
+    public void testExecutor() throws ExecutionException, InterruptedException {
+        List<Runnable> tasks = new ArrayList<>();
+        List<String> performed = new ArrayList<>();
+        Action<String, String, Void> action = new AsyncActionFactoryBase<String, String, Void>(tasks::add).create(
+                (state, event, transition, context) -> performed.add(state));
+        TransitionListener<String, String, Void> listener;
+        listener = new AsyncTransitionListenerFactoryBase<String, String, Void>(tasks::add).create(
+                (stage, event, transition, context) -> performed.add(stage.name()));
+
+        action.perform("State", null, null, null);
+        listener.stateTransition(TransitionStage.After, null, null, null);
+        Assert.assertEquals(2, tasks.size());
+        Assert.assertTrue(performed.isEmpty());
+        tasks.forEach(Runnable::run);
+        Assert.assertEquals(Arrays.asList("State", "After"), performed);
+
+        if (AsyncExecutors.isVirtualThreadSupported()) {
+            ExecutorService executor = AsyncExecutors.newVirtualThreadPerTaskExecutor("AsyncStateMachineTest");
+            AsyncStateMachineBuilder<String, String, Void> turnstileBuilder = AsyncStateMachineBuilders.create();
+            turnstileBuilder.configure("Locked").handle("coin", "Unlocked");
+            turnstileBuilder.configure("Unlocked").handle("push", "Locked");
+            AsyncStateMachine<String, String, Void> turnstile = turnstileBuilder.build("Locked", null);
+            turnstile.start(new AsyncStateMachineScheduler(executor));
+            Assert.assertTrue(turnstile.submit("coin").get().isPresent());
+            Assert.assertTrue(turnstile.submit("push").get().isPresent());
+            turnstile.stop();
+            executor.shutdown();
+        } else {
+            try {
+                AsyncExecutors.newVirtualThreadPerTaskExecutor("AsyncStateMachineTest");
+                Assert.fail();
+            } catch (StateMachineException ignore) {
+            }
+        }
+    }
+
+    /**
+     * JUnit test for chaining on the CompletableFutures returned by {@link AsyncStateMachine#submit(Object)} and
+     * {@link AsyncStateMachine#inject(Object)}.
+     *
+     * @throws InterruptedException on Future get.
+     * @throws ExecutionException on Future get.
+     */
+    @Test
+    public void testCompletionStage() throws ExecutionException, InterruptedException {
+        // Turnstile state machine
+        AsyncStateMachineBuilder<String, String, Void> turnstileBuilder = AsyncStateMachineBuilders.create();
+        turnstileBuilder.configure("Locked").handle("coin", "Unlocked");
+        turnstileBuilder.configure("Unlocked").handle("push", "Locked");
+        AsyncStateMachine<String, String, Void> turnstile = turnstileBuilder.build("Locked", null);
+
+        CompletableFuture<String> destination1 = turnstile.submit("coin")
+                                                          .thenApply(t -> t.map(Transition::getDestination).get());
+        CompletableFuture<Optional<Transition<String, String, Void>>> cancelled = turnstile.submit("push");
+        Assert.assertTrue(cancelled.cancel(false));
+        CompletableFuture<String> destination2 = turnstile.submit("push")
+                                                          .thenCompose(t -> turnstile.submit("coin"))
+                                                          .thenApply(t -> t.map(Transition::getDestination).get());
+        // Firing from a stage completed by the thread processing events would wait on itself forever
+        CompletableFuture<Boolean> blocking = turnstile.submit("push").thenApply(t -> turnstile.fireFast("coin"));
+
+        Thread turnstileThread = new Thread(turnstile);
+        turnstileThread.start();
+
+        Assert.assertEquals("Unlocked", destination1.get());
+        Assert.assertEquals("Unlocked", destination2.get());
+        try {
+            blocking.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof StateMachineException);
+        }
+        Assert.assertTrue(cancelled.isCancelled());
+        Assert.assertEquals("Unlocked", turnstile.getState());
+
+        turnstile.stop();
+    }
+
+    /**
+     * JUnit test for processing events in batches and stopping a batch when an event fails.
+     *
+     * @throws InterruptedException on Thread join.
+     */
+    @Test
+    public void testBatch() throws InterruptedException {
+        List<String> processed = new ArrayList<>();
+        AsyncStateMachineBuilder<String, String, List<String>> builder;
+        builder = AsyncStateMachineBuilders.create(
+                new AsyncStateMachineBuilderFactoryBase<>(new AsyncStateMachineFactoryBase<>(4),
+                                                          new AsyncStateBuilderFactoryBase<>()));
+        builder.configure("State")
+               .handle("event", (state, event, transition, context) -> context.add(event))
+               .handle("fail", (state, event, transition, context) -> {
+                   throw new IllegalStateException(event);
+               });
+        AsyncStateMachine<String, String, List<String>> machine = builder.build("State", processed);
+
+        List<CompletableFuture<Optional<Transition<String, String, List<String>>>>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(machine.submit("event"));
+        }
+        CompletableFuture<Optional<Transition<String, String, List<String>>>> failed = machine.submit("fail");
+        CompletableFuture<Optional<Transition<String, String, List<String>>>> following = machine.submit("event");
+
+        Thread thread = new Thread(machine);
+        thread.start();
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+
+        Assert.assertFalse(thread.isAlive());
+        Assert.assertFalse(machine.isRunning());
+        futures.forEach(f -> Assert.assertTrue(f.join().isPresent()));
+        Assert.assertEquals(10, processed.size());
+        Assert.assertTrue(failed.isCompletedExceptionally());
+        Assert.assertFalse(following.isDone());
+    }
+
+    /**
+     * JUnit test for submitting events to a bounded event queue with each {@link AsyncOverflowPolicy}.
+     *
+     * @throws Exception on Future get.
+     */
+    @Test
+    public void testOverflow() throws Exception {
+        AsyncStateMachine<String, String, Void> failing = createBounded(AsyncOverflowPolicy.Fail);
+        failing.submit("a");
+        failing.submit("b");
+        try {
+            failing.submit("c");
+            Assert.fail();
+        } catch (StateMachineException e) {
+            Assert.assertEquals(2, failing.getQueueSize());
+        }
+
+        AsyncStateMachine<String, String, Void> dropping = createBounded(AsyncOverflowPolicy.DropOldest);
+        CompletableFuture<Optional<Transition<String, String, Void>>> oldest = dropping.submit("a");
+        dropping.submit("b");
+        dropping.submit("c");
+        Assert.assertTrue(oldest.isCompletedExceptionally());
+        Assert.assertEquals(2, dropping.getQueueSize());
+
+        AsyncStateMachine<String, String, Void> coalescing = createBounded(AsyncOverflowPolicy.Coalesce);
+        CompletableFuture<Optional<Transition<String, String, Void>>> pending = coalescing.submit("a");
+        coalescing.submit("b");
+        Assert.assertSame(pending, coalescing.submit("a"));
+        coalescing.inject("c");
+        Assert.assertEquals(3, coalescing.getQueueSize());
+        // Delayed events are never merged with a submitted event
+        coalescing.schedule("b", 1, TimeUnit.MILLISECONDS);
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (coalescing.getQueueSize() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        coalescing.submit("b").cancel(false);
+        try {
+            coalescing.submit("b");
+            Assert.fail();
+        } catch (StateMachineException e) {
+            Assert.assertEquals(4, coalescing.getQueueSize());
+        }
+
+        // The thread processing events goes over capacity instead of blocking on itself, even outside of the lock
+        AsyncStateMachine<String, String, Void> blocking = createBounded(AsyncOverflowPolicy.Block);
+        CompletableFuture<Optional<Transition<String, String, Void>>> chained;
+        chained = blocking.submit("a").thenCompose(t -> {
+            blocking.submit("b");
+            blocking.submit("c");
+            return blocking.submit("a");
+        });
+        Thread thread = new Thread(blocking);
+        thread.start();
+        Assert.assertTrue(chained.get(10, TimeUnit.SECONDS).isPresent());
+        blocking.stop();
+    }
+
+    /**
+     * JUnit test for coalescing submitted events with {@link AsyncEventQueueBase}.
+     *
+     * @throws InterruptedException on Future get.
+     * @throws ExecutionException on Future get.
+     */
+    @Test
+    public void testCoalesce() throws ExecutionException, InterruptedException {
+        AsyncStateMachineBuilder<String, String, Void> builder;
+        builder = AsyncStateMachineBuilders.create(
+                new AsyncStateMachineBuilderFactoryBase<>(
+                        new AsyncStateMachineFactoryBase<>(new AsyncEventQueueFactoryBase<>("tick"::equals)),
+                        new AsyncStateBuilderFactoryBase<>()));
+        builder.configure("State").handle("tick").handle("other");
+        AsyncStateMachine<String, String, Void> machine = builder.build("State", null);
+
+        CompletableFuture<Optional<Transition<String, String, Void>>> tick = machine.submit("tick");
+        Assert.assertSame(tick, machine.submit("tick"));
+        Assert.assertNotSame(machine.submit("other"), machine.submit("other"));
+        Assert.assertEquals(3, machine.getQueueSize());
+
+        tick.cancel(false);
+        CompletableFuture<Optional<Transition<String, String, Void>>> next = machine.submit("tick");
+        Assert.assertNotSame(tick, next);
+
+        Thread thread = new Thread(machine);
+        thread.start();
+        try {
+            Assert.assertTrue(next.get().isPresent());
+            Assert.assertNotSame(next, machine.submit("tick"));
+        } finally {
+            machine.stop();
+            thread.join();
+        }
+    }
+
+    /**
+     * JUnit test for running an asynchronous state machine with each {@link AsyncWaitStrategy}.
+     *
+     * @throws InterruptedException on Thread join.
+     */
+    @Test
+    public void testWaitStrategy() throws InterruptedException {
+        List<Supplier<AsyncWaitStrategy>> strategies = Arrays.asList(BlockingWaitStrategy::new,
+                                                                     BusySpinWaitStrategy::new,
+                                                                     SpinThenYieldWaitStrategy::new,
+                                                                     () -> new TimedParkWaitStrategy(
+                                                                             1, TimeUnit.MILLISECONDS));
+        for (Supplier<AsyncWaitStrategy> strategy : strategies) {
+            AsyncStateMachineBuilder<String, String, Void> builder;
+            builder = AsyncStateMachineBuilders.create(
+                    new AsyncStateMachineBuilderFactoryBase<>(
+                            new AsyncStateMachineFactoryBase<>(new AsyncEventQueueFactoryBase<>(), strategy, 8),
+                            new AsyncStateBuilderFactoryBase<>()));
+            builder.configure("State").handle("event");
+            AsyncStateMachine<String, String, Void> machine = builder.build("State", null);
+
+            Thread thread = new Thread(machine);
+            thread.start();
+            try {
+                for (int i = 0; i < 100; i++) {
+                    Assert.assertTrue(machine.fire("event").isPresent());
+                }
+            } finally {
+                machine.stop();
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            }
+            Assert.assertFalse(thread.isAlive());
+        }
+    }
+
+    /**
+     * JUnit test for {@link RingBufferAsyncStateMachine} with multiple producers, injected events, and batches.
+     *
+     * @throws InterruptedException on Future get or Thread join.
+     * @throws ExecutionException on Future get.
+     */
+    @Test
+    public void testRingBuffer() throws ExecutionException, InterruptedException {
+        int producers = 4;
+        int events = 1_000;
+        List<Integer> processed = new ArrayList<>();
+        AsyncStateMachineBuilder<String, Integer, List<Integer>> builder;
+        builder = AsyncStateMachineBuilders.create(
+                new AsyncStateMachineBuilderFactoryBase<>(new RingBufferAsyncStateMachineFactory<>(16),
+                                                          new AsyncStateBuilderFactoryBase<>()));
+        for (int i = 0; i < producers * events; i++) {
+            builder.configure("Counting").handle(i, (state, event, transition, context) -> context.add(event));
+        }
+        RingBufferAsyncStateMachine<String, Integer, List<Integer>> machine;
+        machine = (RingBufferAsyncStateMachine<String, Integer, List<Integer>>) builder.build("Counting", processed);
+
+        // Injected events are processed before events in the ring buffer, but delayed events are not
+        Future<Optional<Transition<String, Integer, List<Integer>>>> submitted = machine.submit(0);
+        machine.schedule(2, 0, TimeUnit.MILLISECONDS);
+        while (machine.getQueueSize() < 2) {
+            Thread.sleep(1);
+        }
+        Future<Optional<Transition<String, Integer, List<Integer>>>> injected = machine.inject(1);
+        Assert.assertEquals(3, machine.getQueueSize());
+
+        Thread thread = new Thread(machine);
+        thread.start();
+        try {
+            Assert.assertTrue(submitted.get().isPresent());
+            Assert.assertTrue(injected.get().isPresent());
+            Assert.assertTrue(machine.fire(3).isPresent());
+            Assert.assertEquals(Arrays.asList(1, 0, 2, 3), processed);
+            processed.clear();
+
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < producers; i++) {
+                final int producer = i;
+                threads.add(new Thread(() -> {
+                    for (int j = 0; j < events; j++) {
+                        machine.publish(producer * events + j);
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread producer : threads) {
+                producer.join();
+            }
+
+            // Batches larger than the ring buffer are published as a whole before waiting
+            Integer[] batch = new Integer[41];
+            for (int i = 0; i < 40; i++) {
+                batch[i] = i;
+            }
+            batch[40] = -1;
+            FireSummary<String> summary = machine.fireAll(batch, 0, batch.length);
+            Assert.assertEquals(40, summary.getTaken());
+            Assert.assertEquals(1, summary.getIgnored());
+            summary = machine.fireAll(Arrays.asList(batch));
+            Assert.assertEquals(40, summary.getTaken());
+            Assert.assertEquals(1, summary.getIgnored());
+            Assert.assertTrue(machine.fire(0).isPresent());
+        } finally {
+            machine.stop();
+            thread.join();
+        }
+
+        Assert.assertEquals(producers * events + 81, processed.size());
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        for (int event : processed.subList(0, producers * events)) {
+            // Events from each producer are processed in the order they were published
+            Assert.assertTrue(event % events > last[event / events]);
+            last[event / events] = event % events;
+        }
+    }
+
+    /**
+     * JUnit test for {@link AsyncStateMachine#schedule(Object, long, TimeUnit)} and {@link
+     * AsyncStateMachine#schedule(Object, Object, long, TimeUnit)}.
+     *
+     * @throws InterruptedException if thread sleeping is interrupted.
+     */
+    @Test
+    public void testTimers() throws InterruptedException {
+        TimingWheel timingWheel = new TimingWheel(1, TimeUnit.MILLISECONDS, 64, "test-timing-wheel");
+        AsyncStateMachineBuilder<String, String, Void> builder;
+        builder = AsyncStateMachineBuilders.create(
+                new AsyncStateMachineBuilderFactoryBase<>(
+                        new AsyncStateMachineFactoryBase<>(new AsyncEventQueueFactoryBase<>(),
+                                                           BlockingWaitStrategy::new, timingWheel, 8),
+                        new AsyncStateBuilderFactoryBase<>()));
+        builder.configure("Idle").handle("send", "Waiting");
+        builder.configure("Waiting").handle("ack", "Idle").handle("timeout", "Timeout");
+        AsyncStateMachine<String, String, Void> machine = builder.build("Idle", null);
+
+        Thread thread = new Thread(machine);
+        thread.start();
+        try {
+            // Scoped timers are cancelled when the state is exited
+            machine.fire("send");
+            TimerHandle cancelled = machine.schedule("Waiting", "timeout", 10, TimeUnit.SECONDS);
+            machine.fire("ack");
+            Assert.assertTrue(cancelled.isCancelled());
+            Assert.assertFalse(cancelled.isExpired());
+            Assert.assertEquals("Idle", machine.getState());
+
+            // Scoped timers require an active state
+            try {
+                machine.schedule("Waiting", "timeout", 10, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (StateMachineException ignore) {
+            }
+
+            // Delayed events are submitted once the timer expires
+            TimerHandle send = machine.schedule("send", 1, TimeUnit.MILLISECONDS);
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+            while (!"Waiting".equals(machine.getState()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertTrue(send.isExpired());
+            Assert.assertEquals("Waiting", machine.getState());
+            TimerHandle timeout = machine.schedule("Waiting", "timeout", 1, TimeUnit.MILLISECONDS);
+            while (!"Timeout".equals(machine.getState()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertTrue(timeout.isExpired());
+            Assert.assertEquals("Timeout", machine.getState());
+
+            // Delayed events go over the capacity of a full event queue instead of failing on the timing wheel
+            AsyncStateMachine<String, String, Void> failing = createBounded(AsyncOverflowPolicy.Fail);
+            failing.submit("a");
+            failing.submit("b");
+            TimerHandle overdrawn = failing.schedule("c", 1, TimeUnit.MILLISECONDS);
+            while (failing.getQueueSize() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertTrue(overdrawn.isExpired());
+            Assert.assertFalse(overdrawn.getFailure().isPresent());
+            Assert.assertEquals(3, failing.getQueueSize());
+        } finally {
+            machine.stop();
+            thread.join();
+            timingWheel.stop();
+        }
+    }
+
+    /**
+     * JUnit test for {@link AsyncStateMachine#fireAll(Iterable)} and {@link AsyncStateMachine#fireAll(Object[], int,
+     * int)}.
+     *
+     * @throws InterruptedException on Thread join.
+     */
+    @Test
+    public void testFireAll() throws InterruptedException {
+        AsyncStateMachineBuilder<String, String, Void> builder = AsyncStateMachineBuilders.create();
+        builder.configure("Idle").handle("send", "Waiting");
+        builder.configure("Waiting").handle("ack", "Idle");
+        AsyncStateMachine<String, String, Void> machine = builder.build("Idle", null);
+
+        Thread thread = new Thread(machine);
+        thread.start();
+        try {
+            FireSummary<String> summary = machine.fireAll(Arrays.asList("send", "send", "ack", "send"));
+            Assert.assertEquals(3, summary.getTaken());
+            Assert.assertEquals(1, summary.getIgnored());
+            Assert.assertEquals("Waiting", summary.getState());
+        } finally {
+            machine.stop();
+            thread.join();
+        }
+    }
+
+    /**
+     * JUnit test for {@link AsyncStateMachine#setAsyncMetrics(AsyncStateMachineMetrics)}.
+     *
+     * @throws Exception on Future get.
+     */
+    @Test
+    public void testAsyncMetrics() throws Exception {
+        AsyncStateMachineBuilder<String, String, Void> builder = AsyncStateMachineBuilders.create();
+        builder.configure("State").handle("event");
+        AsyncStateMachine<String, String, Void> machine = builder.build("State", null);
+        AsyncStateMachineMetricsBase metrics = new AsyncStateMachineMetricsBase();
+        machine.setAsyncMetrics(metrics);
+
+        // Queue the events before starting so they wait in the event queue
+        List<CompletableFuture<Optional<Transition<String, String, Void>>>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(machine.submit("event"));
+        }
+        futures.add(machine.inject("event"));
+        Thread thread = new Thread(machine);
+        thread.start();
+        try {
+            for (CompletableFuture<Optional<Transition<String, String, Void>>> future : futures) {
+                Assert.assertTrue(future.get().isPresent());
+            }
+            Assert.assertEquals(10, metrics.getSubmittedCount());
+            Assert.assertEquals(1, metrics.getInjectedCount());
+            Assert.assertEquals(11, metrics.getQueueDepth().getCount());
+            Assert.assertEquals(10, metrics.getQueueDepth().getMax());
+            Assert.assertEquals(11, metrics.getQueueWait().getCount());
+            Assert.assertEquals(11, metrics.getProcessing().getCount());
+            Assert.assertEquals(11, metrics.getLockHoldEvents());
+        } finally {
+            machine.stop();
+            thread.join();
+        }
+    }
+
+    /**
+     * JUnit test for the timeouts of timed states declared with {@link
+     * com.bnorm.infinite.builders.AsyncStateBuilder#after(Duration, Object)}.
+     *
+     * @throws InterruptedException if thread sleeping is interrupted.
+     */
+    @Test
+    public void testTimeout() throws InterruptedException {
+        TimingWheel timingWheel = new TimingWheel(1, TimeUnit.MILLISECONDS, 64, "test-timing-wheel");
+        AsyncStateMachineBuilder<String, String, Void> builder;
+        builder = AsyncStateMachineBuilders.create(
+                new AsyncStateMachineBuilderFactoryBase<>(
+                        new AsyncStateMachineFactoryBase<>(new AsyncEventQueueFactoryBase<>(),
+                                                           BlockingWaitStrategy::new, timingWheel, 8),
+                        new AsyncStateBuilderFactoryBase<>()));
+        builder.configure("Idle").handle("send", "Waiting").handle("retry", "Retrying");
+        builder.configure("Waiting").handle("ack", "Idle").after(Duration.ofSeconds(10), "Timeout");
+        builder.configure("Retrying").after(Duration.ofMillis(1), "Timeout");
+        AsyncStateMachine<String, String, Void> machine = builder.build("Idle", null);
+
+        Thread thread = new Thread(machine);
+        thread.start();
+        try {
+            // The timeout is disarmed when the state is exited
+            machine.fire("send");
+            machine.fire("ack");
+            Assert.assertEquals("Idle", machine.getState());
+
+            // The timeout transition is performed once the state has been entered for long enough
+            machine.fire("retry");
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+            while (!"Timeout".equals(machine.getState()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertEquals("Timeout", machine.getState());
+
+            // Timeouts go over the capacity of a full event queue and are never dropped
+            List<Runnable> tasks = new CopyOnWriteArrayList<>();
+            AsyncStateMachineScheduler manual = new AsyncStateMachineScheduler(tasks::add);
+            AsyncStateMachineBuilder<String, String, Void> droppingBuilder;
+            droppingBuilder = AsyncStateMachineBuilders.create(
+                    new AsyncStateMachineBuilderFactoryBase<>(
+                            new AsyncStateMachineFactoryBase<>(
+                                    new AsyncEventQueueFactoryBase<>(1, AsyncOverflowPolicy.DropOldest),
+                                    BlockingWaitStrategy::new, timingWheel, 8),
+                            new AsyncStateBuilderFactoryBase<>()));
+            droppingBuilder.configure("Idle").handle("retry", "Retrying");
+            droppingBuilder.configure("Retrying").handle("noop").after(Duration.ofMillis(1), "Timeout");
+            AsyncStateMachine<String, String, Void> dropping = droppingBuilder.build("Idle", null);
+            manual.start(dropping);
+            tasks.remove(0).run();
+            dropping.submit("retry");
+            tasks.remove(0).run();
+            Assert.assertEquals("Retrying", dropping.getState());
+            while (dropping.getQueueSize() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertTrue(dropping.submit("noop").isCompletedExceptionally());
+            Assert.assertEquals(1, tasks.size());
+            tasks.remove(0).run();
+            Assert.assertEquals("Timeout", dropping.getState());
+            dropping.stop();
+        } finally {
+            machine.stop();
+            thread.join();
+            timingWheel.stop();
+        }
+    }
+
+    /**
+     * Creates an asynchronous state machine, in a state handling the events "a", "b", and "c", with an event queue of
+     * capacity two and the specified overflow policy.
+     *
+     * @param policy the overflow policy of the event queue.
+     * @return a new bounded asynchronous state machine.
+     */
+    private static AsyncStateMachine<String, String, Void> createBounded(AsyncOverflowPolicy policy) {
+        AsyncStateMachineBuilder<String, String, Void> builder;
+        builder = AsyncStateMachineBuilders.create(
+                new AsyncStateMachineBuilderFactoryBase<>(
+                        new AsyncStateMachineFactoryBase<>(new AsyncEventQueueFactoryBase<>(2, policy)),
+                        new AsyncStateBuilderFactoryBase<>()));
+        builder.configure("State").handle("a").handle("b").handle("c");
+        return builder.build("State", null);
+    }
 }